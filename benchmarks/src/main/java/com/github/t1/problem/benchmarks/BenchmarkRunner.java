@@ -0,0 +1,40 @@
+package com.github.t1.problem.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.*;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Runs the benchmarks matching the regex given as argument (default: all) with 1, 4 and N threads (N being the number
+ * of available processors), each with the {@link GCProfiler} to report allocation rates.
+ *
+ * For anything more specific, use the standard JMH command line: `java -cp target/benchmarks.jar org.openjdk.jmh.Main`
+ */
+public class BenchmarkRunner {
+    public static void main(String... args) throws RunnerException {
+        String include = (args.length == 0) ? ".*" : args[0];
+        for (int threads : threadCounts()) {
+            Options options = new OptionsBuilder()
+                    .include(include)
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result("target/jmh-result-" + threads + "-threads.json")
+                    .build();
+            new Runner(options).run();
+        }
+    }
+
+    private static Set<Integer> threadCounts() {
+        Set<Integer> counts = new LinkedHashSet<>();
+        counts.add(1);
+        counts.add(4);
+        counts.add(Runtime.getRuntime().availableProcessors());
+        return counts;
+    }
+}
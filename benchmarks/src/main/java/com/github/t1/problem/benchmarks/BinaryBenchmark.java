@@ -0,0 +1,79 @@
+package com.github.t1.problem.benchmarks;
+
+import com.github.t1.problem.ProblemDetail;
+import com.github.t1.problem.ProblemDetailBinaryProvider;
+import com.github.t1.problem.ProblemDetailJsonProvider;
+import com.github.t1.problem.ProblemDictionary;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.ws.rs.ext.MessageBodyWriter;
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing and reading {@link ProblemDetail}s in the compact binary encoding, with and without a shared
+ * {@link ProblemDictionary}, compared to the JSON provider. The encoded sizes are printed in the setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BinaryBenchmark {
+    @Param({"0", "8"})
+    public int depth;
+
+    private final ProblemDetailJsonProvider json = new ProblemDetailJsonProvider();
+    private final ProblemDetailBinaryProvider binary = new ProblemDetailBinaryProvider(ProblemDictionary.EMPTY);
+    private final ProblemDetailBinaryProvider dictionary = new ProblemDetailBinaryProvider(dictionary());
+    private ProblemDetail problem;
+    private byte[] jsonBytes;
+    private byte[] binaryBytes;
+    private byte[] dictionaryBytes;
+
+    private static ProblemDictionary dictionary() {
+        ProblemDictionary.ProblemDictionaryBuilder builder = ProblemDictionary.builder()
+                .type(ProblemDetailBenchmark.Problems.TYPE);
+        for (int i = 0; i <= 8; i++)
+            builder.title("title-" + i);
+        return builder.build();
+    }
+
+    @Setup public void setup() throws IOException {
+        problem = ProblemDetailBenchmark.Problems.nested(depth);
+        jsonBytes = writeJson();
+        binaryBytes = writeBinary();
+        dictionaryBytes = writeBinaryWithDictionary();
+        System.out.println("\nsizes: json " + jsonBytes.length + ", binary " + binaryBytes.length
+                + ", with dictionary " + dictionaryBytes.length);
+    }
+
+    @Benchmark public byte[] writeJson() throws IOException { return write(json); }
+
+    @Benchmark public byte[] writeBinary() throws IOException { return write(binary); }
+
+    @Benchmark public byte[] writeBinaryWithDictionary() throws IOException { return write(dictionary); }
+
+    @Benchmark public void readJson(Blackhole blackhole) throws IOException {
+        blackhole.consume(json.readFrom(ProblemDetail.class, null, null, null, null,
+                new ByteArrayInputStream(jsonBytes)));
+    }
+
+    @Benchmark public void readBinary(Blackhole blackhole) throws IOException {
+        blackhole.consume(binary.readFrom(ProblemDetail.class, null, null, null, null,
+                new ByteArrayInputStream(binaryBytes)));
+    }
+
+    @Benchmark public void readBinaryWithDictionary(Blackhole blackhole) throws IOException {
+        blackhole.consume(dictionary.readFrom(ProblemDetail.class, null, null, null, null,
+                new ByteArrayInputStream(dictionaryBytes)));
+    }
+
+    private byte[] write(MessageBodyWriter<ProblemDetail> writer) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeTo(problem, ProblemDetail.class, null, null, null, null, out);
+        return out.toByteArray();
+    }
+}
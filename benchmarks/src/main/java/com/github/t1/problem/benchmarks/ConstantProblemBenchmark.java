@@ -0,0 +1,57 @@
+package com.github.t1.problem.benchmarks;
+
+import com.github.t1.problem.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.t1.problem.ProblemDetail.*;
+import static javax.ws.rs.core.Response.Status.*;
+
+/** Writing the rate limiting rejection as a pre-encoded {@link ConstantProblem} vs. a regular problem detail. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConstantProblemBenchmark {
+    private static final ConstantProblem TRY_LATER = ProblemTemplate.of(TOO_MANY_REQUESTS,
+            URI.create("urn:problem:rate-limited"), "rate limited").constant("try again later");
+
+    private final ProblemDetailJsonProvider json = new ProblemDetailJsonProvider();
+    private final ProblemDetailXmlProvider xml = new ProblemDetailXmlProvider();
+    private final ProblemDetail constant = TRY_LATER.problem(ProblemDetailBenchmark.Problems.INSTANCE);
+    private final ProblemDetail regular = ProblemDetail.builder()
+            .type(URI.create("urn:problem:rate-limited"))
+            .title("rate limited")
+            .status(TOO_MANY_REQUESTS)
+            .detail("try again later")
+            .instance(ProblemDetailBenchmark.Problems.INSTANCE)
+            .build();
+
+    @Setup public void setup() throws IOException { writeConstantXml(); } // encode the XML once
+
+    @Benchmark public byte[] writeConstantJson() throws IOException { return writeJson(constant); }
+
+    @Benchmark public byte[] writeRegularJson() throws IOException { return writeJson(regular); }
+
+    @Benchmark public byte[] writeConstantXml() throws IOException { return writeXml(constant); }
+
+    @Benchmark public byte[] writeRegularXml() throws IOException { return writeXml(regular); }
+
+    private byte[] writeJson(ProblemDetail problem) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        json.writeTo(problem, ProblemDetail.class, null, null, APPLICATION_PROBLEM_JSON_TYPE, null, out);
+        return out.toByteArray();
+    }
+
+    private byte[] writeXml(ProblemDetail problem) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        xml.writeTo(problem, ProblemDetail.class, null, null, APPLICATION_PROBLEM_XML_TYPE, null, out);
+        return out.toByteArray();
+    }
+}
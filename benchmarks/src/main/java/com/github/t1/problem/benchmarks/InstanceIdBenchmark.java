@@ -0,0 +1,54 @@
+package com.github.t1.problem.benchmarks;
+
+import com.github.t1.problem.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.URI;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.t1.problem.ProblemDetail.URN_PROBLEM_INSTANCE_PREFIX;
+
+/**
+ * Compares the built-in {@link InstanceIdGenerator}s with what the {@link ProblemDetail#builder()} used to do.
+ * Run this with several threads to see the contention on the shared <code>SecureRandom</code>.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InstanceIdBenchmark {
+    /** Only the {@link #generate(Generator)} benchmark runs for every strategy */
+    @State(Scope.Benchmark)
+    public static class Generator {
+        @Param({"random-uuid", "thread-local-random", "time-ordered", "counter"})
+        public String strategy;
+
+        private InstanceIdGenerator generator;
+
+        @Setup public void setup() {
+            switch (strategy) {
+                case "random-uuid":
+                    generator = InstanceIdGenerators.randomUuid();
+                    break;
+                case "thread-local-random":
+                    generator = InstanceIdGenerators.threadLocalRandom();
+                    break;
+                case "time-ordered":
+                    generator = InstanceIdGenerators.timeOrdered();
+                    break;
+                case "counter":
+                    generator = InstanceIdGenerators.counter();
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown strategy " + strategy);
+            }
+        }
+    }
+
+    /** The way the builder created the instance before it became pluggable */
+    @Benchmark public URI legacy() { return URI.create(URN_PROBLEM_INSTANCE_PREFIX + UUID.randomUUID()); }
+
+    @Benchmark public URI generate(Generator state) { return state.generator.next(); }
+}
@@ -0,0 +1,114 @@
+package com.github.t1.problem.benchmarks;
+
+import com.github.t1.problem.ProblemDetail;
+import com.github.t1.problem.ProblemDetailJsonProvider;
+import org.openjdk.jmh.annotations.*;
+
+import javax.ws.rs.core.Response.StatusType;
+import java.io.*;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.t1.problem.ProblemDetail.APPLICATION_PROBLEM_JSON_TYPE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static javax.ws.rs.core.Response.Status.*;
+
+/** Rendering and parsing {@link ProblemDetail}s, with a flat or a deeply nested <code>cause</code> chain. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProblemDetailBenchmark {
+    /** The number of nested causes; 0 is a flat problem detail */
+    @Param({"0", "1", "8", "32"})
+    public int depth;
+
+    private final ProblemDetailJsonProvider provider = new ProblemDetailJsonProvider();
+    private ProblemDetail problem;
+    private String json;
+    private byte[] jsonBytes;
+
+    @Setup public void setup() {
+        problem = Problems.nested(depth);
+        json = Problems.json(problem);
+        jsonBytes = json.getBytes(UTF_8);
+    }
+
+    @Benchmark public String toStringRendering() { return problem.toString(); }
+
+    @Benchmark public StatusType statusType() { return problem.getStatusType(); }
+
+    @Benchmark public ProblemDetail fromJson() { return ProblemDetail.fromJson(json); }
+
+    @Benchmark public byte[] providerWrite() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        provider.writeTo(problem, ProblemDetail.class, null, null, APPLICATION_PROBLEM_JSON_TYPE, null, out);
+        return out.toByteArray();
+    }
+
+    @Benchmark public ProblemDetail providerRead() throws IOException {
+        return provider.readFrom(ProblemDetail.class, null, null, APPLICATION_PROBLEM_JSON_TYPE, null,
+                new ByteArrayInputStream(jsonBytes));
+    }
+
+    @Benchmark public ProblemDetail builder() {
+        return ProblemDetail.builder()
+                .type(Problems.TYPE)
+                .title("foo-title")
+                .status(CONFLICT)
+                .detail("foo-detail")
+                .build();
+    }
+
+    @Benchmark public ProblemDetail builderWithInstance() {
+        return ProblemDetail.builder()
+                .type(Problems.TYPE)
+                .title("foo-title")
+                .status(CONFLICT)
+                .detail("foo-detail")
+                .instance(Problems.INSTANCE)
+                .build();
+    }
+
+    /** Test data shared by the benchmarks */
+    static class Problems {
+        static final URI TYPE = URI.create("urn:problem:foo-type");
+        static final URI INSTANCE = URI.create("urn:problem-instance:5e3d9dc4-a5e2-4b0c-9f6d-cbd1e6ff7b47");
+
+        static ProblemDetail nested(int depth) {
+            ProblemDetail cause = null;
+            for (int i = depth; i >= 0; i--) {
+                cause = ProblemDetail.builder()
+                        .type(TYPE)
+                        .title("title-" + i)
+                        .status(CONFLICT)
+                        .detail("detail of the problem at level " + i)
+                        .instance(INSTANCE)
+                        .cause(cause)
+                        .build();
+            }
+            return cause;
+        }
+
+        /** Hand-written, so the benchmark doesn't depend on a JSON-B provider */
+        static String json(ProblemDetail problem) {
+            StringBuilder out = new StringBuilder();
+            int depth = 0;
+            for (ProblemDetail p = problem; p != null; p = p.getCause(), depth++) {
+                out.append("{")
+                        .append("\"type\":\"").append(p.getType()).append("\",")
+                        .append("\"title\":\"").append(p.getTitle()).append("\",")
+                        .append("\"status\":").append(p.getStatus()).append(",")
+                        .append("\"detail\":\"").append(p.getDetail()).append("\",")
+                        .append("\"instance\":\"").append(p.getInstance()).append("\"");
+                if (p.getCause() != null)
+                    out.append(",\"cause\":");
+            }
+            for (int i = 0; i < depth; i++)
+                out.append("}");
+            return out.toString();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.github.t1.problem.benchmarks;
+
+import com.github.t1.problem.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import static javax.ws.rs.core.Response.Status.*;
+import static javax.ws.rs.core.Response.Status.Family.*;
+
+/** What does it cost to create a {@link WebException}? */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WebExceptionBenchmark {
+    private static final URI TYPE = URI.create("urn:problem:failed.status.check");
+    private static final IllegalArgumentException CAUSE = new IllegalArgumentException("foo");
+    private static final ProblemTemplate RATE_LIMITED = ProblemTemplate.of(TOO_MANY_REQUESTS,
+            URI.create("urn:problem:rate-limited"), "rate limited");
+
+    /** Skip the stack traces of client errors? */
+    @Param({"false", "true"})
+    public boolean stackless;
+
+    @Setup public void setup() {
+        if (stackless)
+            Stackless.enableFor(CLIENT_ERROR);
+        else
+            Stackless.disable();
+    }
+
+    @ReturnStatus(CONFLICT)
+    public static class YouDidItWrongException extends WebApplicationApplicationException {
+        public YouDidItWrongException(String message) { super(message); }
+    }
+
+    @Benchmark public WebException badRequest() { return WebException.badRequest("you did it wrong"); }
+
+    @Benchmark public WebException builderBuild() {
+        return WebException
+                .builderFor(CONFLICT)
+                .type(TYPE)
+                .title("failed status check")
+                .detail("foo is not allowed when bar")
+                .causedBy(CAUSE)
+                .build();
+    }
+
+    @Benchmark public WebException serverError() {
+        return WebException.builderFor(INTERNAL_SERVER_ERROR).detail("oops").build();
+    }
+
+    @Benchmark public WebException template() { return RATE_LIMITED.exception("try again later"); }
+
+    @Benchmark public WebException builderRateLimited() {
+        return WebException
+                .builderFor(TOO_MANY_REQUESTS)
+                .type(RATE_LIMITED.getType())
+                .title("rate limited")
+                .detail("try again later")
+                .build();
+    }
+
+    @Benchmark public WebException subclass() { return new YouDidItWrongException("Next time, you'll do better"); }
+}
@@ -0,0 +1,62 @@
+package com.github.t1.problem.benchmarks;
+
+import com.github.t1.problem.ProblemDetail;
+import com.github.t1.problem.ProblemDetailXmlProvider;
+import org.openjdk.jmh.annotations.*;
+
+import javax.xml.bind.*;
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * XML round-trips of {@link ProblemDetail}s, with JAXB and with the streaming {@link ProblemDetailXmlProvider}.
+ * The {@link JAXBContext} is created once, but the marshaller and unmarshaller are created for every call, just like a
+ * JAX-RS container does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class XmlBenchmark {
+    @Param({"0", "8"})
+    public int depth;
+
+    private final ProblemDetailXmlProvider provider = new ProblemDetailXmlProvider();
+    private JAXBContext context;
+    private ProblemDetail problem;
+    private byte[] xml;
+
+    @Setup public void setup() throws JAXBException {
+        context = JAXBContext.newInstance(ProblemDetail.class);
+        problem = ProblemDetailBenchmark.Problems.nested(depth);
+        xml = marshal();
+    }
+
+    @Benchmark public byte[] marshal() throws JAXBException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        context.createMarshaller().marshal(problem, out);
+        return out.toByteArray();
+    }
+
+    @Benchmark public ProblemDetail unmarshal() throws JAXBException {
+        return (ProblemDetail) context.createUnmarshaller().unmarshal(new ByteArrayInputStream(xml));
+    }
+
+    @Benchmark public ProblemDetail roundTrip() throws JAXBException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        context.createMarshaller().marshal(problem, out);
+        return (ProblemDetail) context.createUnmarshaller().unmarshal(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    @Benchmark public byte[] write() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        provider.writeTo(problem, ProblemDetail.class, null, null, null, null, out);
+        return out.toByteArray();
+    }
+
+    @Benchmark public ProblemDetail read() throws IOException {
+        return provider.readFrom(ProblemDetail.class, null, null, null, null, new ByteArrayInputStream(xml));
+    }
+}
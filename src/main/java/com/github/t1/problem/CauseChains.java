@@ -0,0 +1,102 @@
+package com.github.t1.problem;
+
+import javax.json.JsonNumber;
+import javax.json.JsonValue;
+import java.math.BigInteger;
+import java.net.URI;
+import java.util.*;
+
+/**
+ * Every service in a call chain that uses {@link WebExceptionBuilder#causedBy(Throwable)} adds a level of nested
+ * causes to the problem detail. To keep the payloads small, the chain is limited to a maximum depth: the remaining
+ * causes are replaced by a single tail problem of type {@link #ELIDED_TYPE}, with an <code>elided</code> extension
+ * containing the number of causes removed. Optionally, identical consecutive causes (ignoring the instance) are
+ * reduced to one.
+ *
+ * The defaults can be set with the system properties {@value #MAX_DEPTH_PROPERTY} (default
+ * {@value #DEFAULT_MAX_DEPTH}) and {@value #DEDUPLICATE_PROPERTY} (default <code>false</code>).
+ */
+public final class CauseChains {
+    public static final String MAX_DEPTH_PROPERTY = "com.github.t1.problem.cause.max-depth";
+    public static final String DEDUPLICATE_PROPERTY = "com.github.t1.problem.cause.deduplicate";
+
+    public static final int DEFAULT_MAX_DEPTH = 16;
+
+    public static final URI ELIDED_TYPE = URI.create(ProblemDetail.URN_PROBLEM_PREFIX + "elided-causes");
+    public static final String ELIDED_EXTENSION = "elided";
+
+    private static volatile int maxDepth = Integer.getInteger(MAX_DEPTH_PROPERTY, DEFAULT_MAX_DEPTH);
+    private static volatile boolean deduplicate = Boolean.getBoolean(DEDUPLICATE_PROPERTY);
+
+    /** The maximum number of causes kept, not counting the tail of elided causes */
+    public static int getMaxDepth() { return maxDepth; }
+
+    public static void setMaxDepth(int maxDepth) {
+        if (maxDepth < 1)
+            throw new IllegalArgumentException("max cause depth must be positive but is " + maxDepth);
+        CauseChains.maxDepth = maxDepth;
+    }
+
+    public static boolean isDeduplicate() { return deduplicate; }
+
+    public static void setDeduplicate(boolean deduplicate) { CauseChains.deduplicate = deduplicate; }
+
+    /** The chain limited and deduplicated as configured, or the same chain, if nothing has to be changed */
+    static ProblemDetail compact(ProblemDetail chain) {
+        int maxDepth = CauseChains.maxDepth;
+        boolean deduplicate = CauseChains.deduplicate;
+        List<ProblemDetail> kept = new ArrayList<>();
+        Set<ProblemDetail> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        boolean changed = false;
+        long elided = 0;
+        ProblemDetail previous = null;
+        for (ProblemDetail problem = chain; problem != null && seen.add(problem); problem = problem.getCause()) {
+            if (deduplicate && previous != null && problem.isSameProblemAs(previous)) {
+                changed = true;
+            } else if (kept.size() < maxDepth) {
+                kept.add(problem);
+            } else {
+                elided = add(elided, count(problem));
+            }
+            previous = problem;
+        }
+        if (!changed && elided == 0)
+            return chain;
+        ProblemDetail compacted = (elided == 0) ? null : elidedCauses(elided);
+        for (int i = kept.size() - 1; i >= 0; i--)
+            compacted = kept.get(i).withCause(compacted);
+        return compacted;
+    }
+
+    /**
+     * An elided tail from upstream counts the causes it stands for, so compacting again doesn't lose them.
+     * The (untrusted) count is at least 1 and at most {@link Long#MAX_VALUE}.
+     */
+    private static long count(ProblemDetail problem) {
+        if (!ELIDED_TYPE.equals(problem.getType()))
+            return 1;
+        JsonValue value = problem.getExtension(ELIDED_EXTENSION);
+        if (!(value instanceof JsonNumber) || !((JsonNumber) value).isIntegral())
+            return 1;
+        BigInteger count = ((JsonNumber) value).bigIntegerValue();
+        return (count.signum() <= 0) ? 1 : (count.bitLength() < Long.SIZE) ? count.longValue() : Long.MAX_VALUE;
+    }
+
+    /** Both counts are positive, so an overflow saturates */
+    private static long add(long a, long b) {
+        long sum = a + b;
+        return (sum < 0) ? Long.MAX_VALUE : sum;
+    }
+
+    private static ProblemDetail elidedCauses(long count) {
+        return ProblemDetail.builder()
+                .type(ELIDED_TYPE)
+                .title("elided causes")
+                .detail(count + " more " + ((count == 1) ? "cause" : "causes") + " elided")
+                .instance(null)
+                .extension(ELIDED_EXTENSION, count)
+                .build();
+    }
+
+    private CauseChains() {}
+}
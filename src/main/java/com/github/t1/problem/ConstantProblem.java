@@ -0,0 +1,100 @@
+package com.github.t1.problem;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status.Family;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+
+import static com.github.t1.problem.ProblemDetail.*;
+import static lombok.AccessLevel.*;
+
+/**
+ * A problem that is completely static, except maybe for the <code>instance</code>, e.g. for a high-rate rejection.
+ * Its JSON and XML encodings are computed only once, and written straight to the output stream, with only the
+ * instance spliced in.
+ *
+ *      private static final ConstantProblem TRY_LATER = ProblemTemplate.of(TOO_MANY_REQUESTS,
+ *              URI.create("urn:problem:rate-limited"), "rate limited").constant("try again later");
+ *
+ *      return TRY_LATER.response();
+ */
+@Getter
+public final class ConstantProblem {
+    /** A constant with the fields of this problem; the instance and cause are ignored, but it must have a status */
+    public static ConstantProblem of(@NonNull ProblemDetail problem) { return new ConstantProblem(problem); }
+
+    /** The problem without an instance, which can be shared */
+    private final ProblemDetail problem;
+    private final boolean serverError;
+    @Getter(NONE) private final Family family;
+
+    @Getter(NONE) private final byte[] jsonPrefix;
+    @Getter(NONE) private final byte[] jsonSuffix;
+    @Getter(NONE) private final byte[] xmlPrefix;
+    @Getter(NONE) private final byte[] xmlSuffix;
+
+    private ConstantProblem(ProblemDetail problem) {
+        if (!problem.hasStatus())
+            throw new IllegalArgumentException("a constant problem requires a status");
+        this.problem = problem.withCause(null).withInstance(null).withConstant(this);
+        this.family = Family.familyOf(problem.statusCode());
+        this.serverError = family == Family.SERVER_ERROR;
+        try {
+            this.jsonPrefix = ProblemJson.encodeConstantPrefix(this.problem);
+            this.jsonSuffix = ProblemJson.encodeConstantSuffix(this.problem);
+            byte[][] xml = ProblemXml.encodeConstant(this.problem);
+            this.xmlPrefix = xml[0];
+            this.xmlSuffix = xml[1];
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    byte[] jsonPrefix() { return jsonPrefix; }
+
+    byte[] jsonSuffix() { return jsonSuffix; }
+
+    byte[] xmlPrefix() { return xmlPrefix; }
+
+    byte[] xmlSuffix() { return xmlSuffix; }
+
+    /** With an instance generated by the default {@link InstanceIdGenerator} */
+    public ProblemDetail problem() { return problem(InstanceIdGenerators.next()); }
+
+    /** With this instance; <code>null</code> returns the shared {@link #getProblem() problem} */
+    public ProblemDetail problem(URI instance) { return (instance == null) ? problem : problem.withInstance(instance); }
+
+    /** With an instance generated by the default {@link InstanceIdGenerator} */
+    public Response response() { return response(InstanceIdGenerators.next()); }
+
+    /** With this instance, or none, if it's <code>null</code> */
+    public Response response(URI instance) {
+        long start = System.nanoTime();
+        ProblemDetail problem = problem(instance);
+        Response response = Response.status(problem.getStatus()).type(APPLICATION_PROBLEM_JSON_TYPE)
+                .entity(problem).build();
+        Instrumentation.created(problem, start);
+        return response;
+    }
+
+    /** With a generated instance; stackless, if configured in {@link Stackless} */
+    public WebException exception() { return exception(InstanceIdGenerators.next()); }
+
+    /** With this instance, or none, if it's <code>null</code>; stackless, if configured in {@link Stackless} */
+    public WebException exception(URI instance) {
+        long start = System.nanoTime();
+        ProblemDetail problem = problem(instance);
+        Response response = Response.status(problem.getStatus()).type(APPLICATION_PROBLEM_JSON_TYPE)
+                .entity(problem).build();
+        boolean stackless = Stackless.isEnabledFor(family);
+        WebException exception = serverError
+                ? new WebException(null, response, null, stackless)
+                : new WebApplicationApplicationException(null, response, null, stackless);
+        Instrumentation.created(problem, start, !stackless);
+        return exception;
+    }
+}
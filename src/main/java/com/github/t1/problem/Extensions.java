@@ -0,0 +1,110 @@
+package com.github.t1.problem;
+
+import javax.json.Json;
+import javax.json.JsonReader;
+import javax.json.JsonValue;
+import java.io.StringReader;
+import java.util.*;
+
+/**
+ * The extension members of a {@link ProblemDetail}, i.e. all members besides the standard fields.
+ * Stored in small arrays of names and raw JSON texts; values are parsed only when accessed.
+ */
+final class Extensions {
+    static final Extensions EMPTY = new Extensions(new String[0], new String[0]);
+
+    private static final Set<String> STANDARD_FIELDS = new HashSet<>(Arrays.asList(
+            "type", "title", "status", "detail", "instance", "cause", "errors", "errorsOmitted"));
+
+    private final String[] names;
+    private final String[] json;
+    /** Lazily parsed; races are benign, as the values are immutable */
+    private final JsonValue[] values;
+
+    private Extensions(String[] names, String[] json) {
+        this.names = names;
+        this.json = json;
+        this.values = new JsonValue[names.length];
+    }
+
+    boolean isEmpty() { return names.length == 0; }
+
+    int size() { return names.length; }
+
+    String name(int index) { return names[index]; }
+
+    String json(int index) { return json[index]; }
+
+    List<String> names() { return Collections.unmodifiableList(Arrays.asList(names)); }
+
+    String json(String name) {
+        int index = indexOf(name);
+        return (index < 0) ? null : json[index];
+    }
+
+    JsonValue value(String name) {
+        int index = indexOf(name);
+        return (index < 0) ? null : value(index);
+    }
+
+    JsonValue value(int index) {
+        JsonValue value = values[index];
+        if (value == null)
+            try (JsonReader reader = Json.createReader(new StringReader(json[index]))) {
+                values[index] = value = reader.readValue();
+            }
+        return value;
+    }
+
+    private int indexOf(String name) {
+        for (int i = 0; i < names.length; i++)
+            if (names[i].equals(name))
+                return i;
+        return -1;
+    }
+
+    Builder toBuilder() {
+        Builder builder = new Builder();
+        for (int i = 0; i < names.length; i++)
+            builder.members.put(names[i], json[i]);
+        return builder;
+    }
+
+    /** Collects the members in insertion order and freezes them only once, so adding many members is linear */
+    static final class Builder {
+        private final Map<String, String> members = new LinkedHashMap<>();
+
+        int size() { return members.size(); }
+
+        /** Add the member or replace its value, keeping its position */
+        Builder put(String name, String json) {
+            if (STANDARD_FIELDS.contains(name))
+                throw new IllegalArgumentException("'" + name + "' is a standard field, not an extension member");
+            members.put(name, json);
+            return this;
+        }
+
+        Extensions build() {
+            return members.isEmpty() ? EMPTY : new Extensions(
+                    members.keySet().toArray(new String[0]), members.values().toArray(new String[0]));
+        }
+    }
+
+    @Override public boolean equals(Object that) {
+        return this == that || that instanceof Extensions
+                && Arrays.equals(names, ((Extensions) that).names)
+                && Arrays.equals(json, ((Extensions) that).json);
+    }
+
+    @Override public int hashCode() { return 31 * Arrays.hashCode(names) + Arrays.hashCode(json); }
+
+    @Override public String toString() {
+        StringBuilder out = new StringBuilder("{");
+        for (int i = 0; i < names.length; i++) {
+            if (i > 0)
+                out.append(',');
+            JsonText.quote(names[i], out).append(':').append(json[i]);
+        }
+        return out.append('}').toString();
+    }
+}
@@ -0,0 +1,16 @@
+package com.github.t1.problem;
+
+import java.net.URI;
+
+/**
+ * Generates the {@link ProblemDetail#getInstance() instance} URI for problem details that don't set one explicitly.
+ * Implementations must be thread safe. To plug in your own, either call
+ * {@link InstanceIdGenerators#setDefault(InstanceIdGenerator)} or register it as a {@link java.util.ServiceLoader}
+ * service.
+ *
+ * @see InstanceIdGenerators
+ */
+@FunctionalInterface
+public interface InstanceIdGenerator {
+    URI next();
+}
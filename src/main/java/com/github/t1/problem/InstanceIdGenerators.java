@@ -0,0 +1,155 @@
+package com.github.t1.problem;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.URI;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.github.t1.problem.ProblemDetail.*;
+
+/**
+ * The built-in {@link InstanceIdGenerator}s and the default one used by the {@link ProblemDetail#builder()}.
+ * All of them generate URIs starting with {@link ProblemDetail#URN_PROBLEM_INSTANCE_PREFIX}.
+ *
+ * The default is taken from the system property {@value #PROPERTY} (one of <code>random-uuid</code>,
+ * <code>thread-local-random</code>, <code>time-ordered</code>, or <code>counter</code>), or else the first
+ * {@link InstanceIdGenerator} registered with the {@link ServiceLoader}, or else {@link #randomUuid()}.
+ * An unknown name in the property is logged and ignored.
+ */
+@Slf4j
+public final class InstanceIdGenerators {
+    public static final String PROPERTY = "com.github.t1.problem.instance-id";
+
+    private static volatile InstanceIdGenerator defaultGenerator = initialDefault();
+
+    private static InstanceIdGenerator initialDefault() {
+        String property = System.getProperty(PROPERTY);
+        if (property != null) {
+            InstanceIdGenerator named = named(property.trim());
+            if (named != null)
+                return named;
+            log.warn("ignoring unknown {}: {}", PROPERTY, property.trim());
+        }
+        Iterator<InstanceIdGenerator> services = ServiceLoader.load(InstanceIdGenerator.class).iterator();
+        return services.hasNext() ? services.next() : randomUuid();
+    }
+
+    /** The generator with this name, or <code>null</code>, if there is none */
+    private static InstanceIdGenerator named(String name) {
+        switch (name) {
+            case "random-uuid":
+                return randomUuid();
+            case "thread-local-random":
+                return threadLocalRandom();
+            case "time-ordered":
+                return timeOrdered();
+            case "counter":
+                return counter();
+            default:
+                return null;
+        }
+    }
+
+    public static InstanceIdGenerator getDefault() { return defaultGenerator; }
+
+    public static void setDefault(@NonNull InstanceIdGenerator generator) { defaultGenerator = generator; }
+
+    static URI next() { return defaultGenerator.next(); }
+
+
+    /**
+     * Random (version 4) UUIDs from the shared {@link SecureRandom} of {@link UUID#randomUUID()}. Unpredictable, but
+     * threads contend for the random generator.
+     */
+    public static InstanceIdGenerator randomUuid() { return () -> uuid(UUID.randomUUID()); }
+
+    /** Random (version 4) UUIDs from the {@link ThreadLocalRandom}, i.e. not contended, but not secure. */
+    public static InstanceIdGenerator threadLocalRandom() {
+        return () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long msb = (random.nextLong() & ~0xf000L) | 0x4000L;
+            long lsb = (random.nextLong() & ~(0xc0L << 56)) | (0x80L << 56);
+            return uuid(msb, lsb);
+        };
+    }
+
+    /**
+     * Time-ordered UUIDs in the style of UUID version 7: 48 bits of epoch millis followed by random bits from the
+     * {@link ThreadLocalRandom}, so they sort by time, e.g. in a log or database index.
+     */
+    public static InstanceIdGenerator timeOrdered() {
+        return () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long msb = (System.currentTimeMillis() << 16) | 0x7000L | (random.nextInt() & 0x0fffL);
+            long lsb = (random.nextLong() & ~(0xc0L << 56)) | (0x80L << 56);
+            return uuid(msb, lsb);
+        };
+    }
+
+    /**
+     * A random node id chosen at startup and a counter, e.g. <code>urn:problem-instance:5e3d9dc4a5e2-2a</code>.
+     * Every thread takes a block of numbers from a shared counter, so they rarely contend. Unique only as long as
+     * the node ids are, and the numbers reveal how many problems this node has produced.
+     */
+    public static InstanceIdGenerator counter() { return new CounterInstanceIdGenerator(); }
+
+    private static class CounterInstanceIdGenerator implements InstanceIdGenerator {
+        private static final int BLOCK_SIZE = 1024;
+        private final String prefix = URN_PROBLEM_INSTANCE_PREFIX
+                + Long.toHexString(new SecureRandom().nextLong() & 0xffff_ffff_ffffL) + "-";
+        private final AtomicLong blocks = new AtomicLong();
+        /**
+         * Per generator, so the threads don't keep a replaced generator (and its class loader) reachable:
+         * the entries of a collected thread local are dropped from the threads' maps.
+         */
+        private final ThreadLocal<Block> block = ThreadLocal.withInitial(Block::new);
+
+        @Override public URI next() {
+            Block block = this.block.get();
+            if (block.next == block.limit) {
+                block.next = blocks.getAndIncrement() * BLOCK_SIZE;
+                block.limit = block.next + BLOCK_SIZE;
+            }
+            return URI.create(prefix + Long.toHexString(block.next++));
+        }
+    }
+
+    private static class Block {
+        private long next;
+        private long limit;
+    }
+
+    private static URI uuid(UUID uuid) { return uuid(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()); }
+
+    /** Formats the UUID directly into the URN, without the intermediate strings of {@link UUID#toString()} */
+    private static URI uuid(long msb, long lsb) {
+        int offset = URN_PROBLEM_INSTANCE_PREFIX.length();
+        char[] chars = new char[offset + 36];
+        URN_PROBLEM_INSTANCE_PREFIX.getChars(0, offset, chars, 0);
+        hex(chars, offset, msb >>> 32, 8);
+        chars[offset + 8] = '-';
+        hex(chars, offset + 9, msb >>> 16, 4);
+        chars[offset + 13] = '-';
+        hex(chars, offset + 14, msb, 4);
+        chars[offset + 18] = '-';
+        hex(chars, offset + 19, lsb >>> 48, 4);
+        chars[offset + 23] = '-';
+        hex(chars, offset + 24, lsb, 12);
+        return URI.create(new String(chars));
+    }
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static void hex(char[] chars, int offset, long value, int digits) {
+        for (int i = digits - 1; i >= 0; i--) {
+            chars[offset + i] = HEX[(int) (value & 0xf)];
+            value >>>= 4;
+        }
+    }
+
+    private InstanceIdGenerators() {}
+}
@@ -0,0 +1,48 @@
+package com.github.t1.problem;
+
+import lombok.NonNull;
+
+/**
+ * The hooks called when problems are created or received. By default, the {@link ProblemMetrics} are the
+ * {@link ProblemCounters#getDefault() default ProblemCounters}. Created problems are also published to the
+ * {@link ProblemRecorder}, if there is one, and all are emitted as JFR events, see {@link ProblemEvents}.
+ */
+public final class Instrumentation {
+    private static volatile ProblemMetrics metrics = ProblemCounters.getDefault();
+
+    public static ProblemMetrics getMetrics() { return metrics; }
+
+    /** Use {@link ProblemMetrics#NOOP} to switch metrics off */
+    public static void setMetrics(@NonNull ProblemMetrics metrics) { Instrumentation.metrics = metrics; }
+
+    private static volatile ProblemRecorder recorder = ProblemRecorder.fromSystemProperties();
+
+    /** The recorder or <code>null</code>, if recording is switched off */
+    public static ProblemRecorder getRecorder() { return recorder; }
+
+    /** Use <code>null</code> to switch recording off */
+    public static void setRecorder(ProblemRecorder recorder) { Instrumentation.recorder = recorder; }
+
+    static void created(ProblemDetail problem, long startNanos) { created(problem, startNanos, false); }
+
+    static void created(ProblemDetail problem, long startNanos, boolean stackTrace) {
+        ProblemEvents.created(problem, stackTrace);
+        metrics.created(problem, System.nanoTime() - startNanos);
+        ProblemRecorder recorder = Instrumentation.recorder;
+        if (recorder != null)
+            recorder.record(problem);
+    }
+
+    static void received(ProblemDetail problem, long startNanos) {
+        metrics.received(problem, causeDepth(problem), System.nanoTime() - startNanos);
+    }
+
+    static int causeDepth(ProblemDetail problem) {
+        int depth = 0;
+        for (ProblemDetail cause = problem.getCause(); cause != null; cause = cause.getCause())
+            depth++;
+        return depth;
+    }
+
+    private Instrumentation() {}
+}
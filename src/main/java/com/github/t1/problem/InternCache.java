@@ -0,0 +1,70 @@
+package com.github.t1.problem;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A bounded, concurrent cache of canonical instances for frequently repeated strings, e.g. problem types.
+ * It approximates LRU with two generations: lookups hit the current generation, or promote entries from the previous
+ * one; when the current generation is full, it becomes the previous one, and whatever was not used since is dropped.
+ * So the cache never holds more than its max size, and lookups never block.
+ *
+ * @see Interning
+ */
+public final class InternCache<T> {
+    private final int generationSize;
+    private final Function<String, T> factory;
+
+    private volatile Map<String, T> current = new ConcurrentHashMap<>();
+    private volatile Map<String, T> previous = Collections.emptyMap();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    InternCache(int maxSize, Function<String, T> factory) {
+        this.generationSize = Math.max(1, maxSize / 2);
+        this.factory = factory;
+    }
+
+    T intern(String key) {
+        Map<String, T> current = this.current;
+        T value = current.get(key);
+        if (value != null) {
+            hits.increment();
+            return value;
+        }
+        value = previous.get(key);
+        if (value == null) {
+            misses.increment();
+            value = factory.apply(key);
+        } else {
+            hits.increment();
+        }
+        if (current.size() >= generationSize)
+            current = rotate(current);
+        T existing = current.putIfAbsent(key, value);
+        return (existing == null) ? value : existing;
+    }
+
+    private synchronized Map<String, T> rotate(Map<String, T> full) {
+        if (current == full) {
+            previous = full;
+            current = new ConcurrentHashMap<>();
+        }
+        return current;
+    }
+
+    public long getHits() { return hits.sum(); }
+
+    public long getMisses() { return misses.sum(); }
+
+    /** The number of cached instances, i.e. of both generations */
+    public int size() { return current.size() + previous.size(); }
+
+    @Override public String toString() {
+        return "InternCache[size=" + size() + ", hits=" + getHits() + ", misses=" + getMisses() + "]";
+    }
+}
@@ -0,0 +1,50 @@
+package com.github.t1.problem;
+
+import java.net.URI;
+
+/**
+ * Problems often come in large numbers with only a few distinct types and titles, e.g. when a gateway parses the
+ * problems of its upstream services. Interning them saves parsing the type URIs over and over again, and keeps only
+ * one instance of each in memory, e.g. when problems are buffered for later analysis.
+ *
+ * Interning is used by the parser and by the {@link ProblemType}s. It's disabled by default and can be enabled with
+ * the system property {@value #MAX_SIZE_PROPERTY}: the maximum number of types and titles (each) to keep.
+ *
+ * @see ProblemDetail#fromJson(String)
+ */
+public final class Interning {
+    public static final String MAX_SIZE_PROPERTY = "com.github.t1.problem.intern.max-size";
+
+    private static volatile InternCache<URI> types;
+    private static volatile InternCache<String> titles;
+
+    static {
+        setMaxSize(Integer.getInteger(MAX_SIZE_PROPERTY, 0));
+    }
+
+    /** Replace the caches with empty caches of this size each; 0 disables interning */
+    public static void setMaxSize(int maxSize) {
+        if (maxSize < 0)
+            throw new IllegalArgumentException("max intern size must not be negative but is " + maxSize);
+        types = (maxSize == 0) ? null : new InternCache<>(maxSize, URI::create);
+        titles = (maxSize == 0) ? null : new InternCache<>(maxSize, title -> title);
+    }
+
+    /** The cache for types or <code>null</code>, if interning is disabled */
+    public static InternCache<URI> types() { return types; }
+
+    /** The cache for titles or <code>null</code>, if interning is disabled */
+    public static InternCache<String> titles() { return titles; }
+
+    static URI type(String type) {
+        InternCache<URI> cache = types;
+        return (cache == null) ? URI.create(type) : cache.intern(type);
+    }
+
+    static String title(String title) {
+        InternCache<String> cache = titles;
+        return (cache == null) ? title : cache.intern(title);
+    }
+
+    private Interning() {}
+}
@@ -0,0 +1,102 @@
+package com.github.t1.problem;
+
+import jdk.jfr.*;
+
+/**
+ * The JDK Flight Recorder events of the problem detail library, in the category <code>Problem Detail</code>.
+ * Only loaded by {@link ProblemEvents}, if JFR is available. Enable them, e.g., with
+ * <code>jcmd &lt;pid&gt; JFR.start settings=profile</code> plus a <code>.jfc</code> file enabling
+ * <code>com.github.t1.problem.*</code>, or programmatically with <code>Recording.enable(Created.class)</code>.
+ *
+ * The events don't record the stack trace of the emitting thread; the duration of the created event is not measured.
+ */
+final class JfrProblemEvents {
+    /** Register the event types; this fails, if JFR can't handle them */
+    static void register() {
+        new Created();
+        new Serialized();
+        new Parsed();
+    }
+
+    static void created(ProblemDetail problem, boolean stackTrace) {
+        Created event = new Created();
+        if (!event.isEnabled())
+            return;
+        event.status = problem.statusCode();
+        event.type = (problem.getType() == null) ? null : problem.getType().toString();
+        event.stackTraceCaptured = stackTrace;
+        event.commit();
+    }
+
+    /** The begun event, or <code>null</code>, if it's not enabled */
+    static Object serializing() {
+        Serialized event = new Serialized();
+        if (!event.isEnabled())
+            return null;
+        event.begin();
+        return event;
+    }
+
+    static void serialized(Object begun, String mediaType, long bytes) {
+        Serialized event = (Serialized) begun;
+        event.end();
+        if (!event.shouldCommit())
+            return;
+        event.mediaType = mediaType;
+        event.bytes = bytes;
+        event.commit();
+    }
+
+    /** The begun event, or <code>null</code>, if it's not enabled */
+    static Object parsing() {
+        Parsed event = new Parsed();
+        if (!event.isEnabled())
+            return null;
+        event.begin();
+        return event;
+    }
+
+    static void parsed(Object begun, ProblemDetail problem, long bytes) {
+        Parsed event = (Parsed) begun;
+        event.end();
+        if (!event.shouldCommit())
+            return;
+        event.bytes = bytes;
+        event.causeDepth = Instrumentation.causeDepth(problem);
+        event.commit();
+    }
+
+    @Name("com.github.t1.problem.Created")
+    @Label("Problem Created")
+    @Description("A problem detail was created, e.g. by WebExceptionBuilder.build() or a @ReturnStatus exception")
+    @Category("Problem Detail")
+    @StackTrace(false)
+    static class Created extends Event {
+        @Label("Status") int status;
+        @Label("Type") String type;
+        /** Not named <code>stackTrace</code>, as that's the implicit field for the stack trace of the event */
+        @Label("Stack Trace Captured") boolean stackTraceCaptured;
+    }
+
+    @Name("com.github.t1.problem.Serialized")
+    @Label("Problem Serialized")
+    @Description("A problem detail was written to an entity stream")
+    @Category("Problem Detail")
+    @StackTrace(false)
+    static class Serialized extends Event {
+        @Label("Media Type") String mediaType;
+        @Label("Size") @DataAmount long bytes;
+    }
+
+    @Name("com.github.t1.problem.Parsed")
+    @Label("Problem Parsed")
+    @Description("A problem detail was read from JSON or a client response")
+    @Category("Problem Detail")
+    @StackTrace(false)
+    static class Parsed extends Event {
+        @Label("Size") @Description("-1, if unknown") @DataAmount long bytes;
+        @Label("Cause Depth") int causeDepth;
+    }
+
+    private JfrProblemEvents() {}
+}
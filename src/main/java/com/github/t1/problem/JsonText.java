@@ -0,0 +1,103 @@
+package com.github.t1.problem;
+
+import javax.json.stream.JsonParser;
+import javax.json.stream.JsonParser.Event;
+
+import static javax.json.stream.JsonParser.Event.*;
+
+/** Helpers for compact JSON text in a {@link StringBuilder} */
+class JsonText {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    static String quote(String value) { return quote(value, new StringBuilder(value.length() + 2)).toString(); }
+
+    static StringBuilder quote(String value, StringBuilder out) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                case '\\':
+                    out.append('\\').append(c);
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                case '\b':
+                    out.append("\\b");
+                    break;
+                case '\f':
+                    out.append("\\f");
+                    break;
+                default:
+                    if (c < 0x20)
+                        out.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xf]);
+                    else
+                        out.append(c);
+            }
+        }
+        return out.append('"');
+    }
+
+    /**
+     * Copy the value that starts with the current event of the parser as compact JSON text,
+     * without building a tree, and without recursion.
+     */
+    static String copy(JsonParser parser, Event event) {
+        StringBuilder out = new StringBuilder();
+        int depth = 0;
+        boolean first = true;
+        while (true) {
+            if (!first && event != END_OBJECT && event != END_ARRAY && out.charAt(out.length() - 1) != ':')
+                out.append(',');
+            first = false;
+            switch (event) {
+                case START_OBJECT:
+                    out.append('{');
+                    depth++;
+                    first = true;
+                    break;
+                case START_ARRAY:
+                    out.append('[');
+                    depth++;
+                    first = true;
+                    break;
+                case END_OBJECT:
+                    out.append('}');
+                    depth--;
+                    break;
+                case END_ARRAY:
+                    out.append(']');
+                    depth--;
+                    break;
+                case KEY_NAME:
+                    quote(parser.getString(), out).append(':');
+                    break;
+                case VALUE_STRING:
+                    quote(parser.getString(), out);
+                    break;
+                case VALUE_NUMBER:
+                    out.append(parser.getString());
+                    break;
+                case VALUE_TRUE:
+                    out.append("true");
+                    break;
+                case VALUE_FALSE:
+                    out.append("false");
+                    break;
+                case VALUE_NULL:
+                    out.append("null");
+                    break;
+            }
+            if (depth == 0)
+                return out.toString();
+            event = parser.next();
+        }
+    }
+}
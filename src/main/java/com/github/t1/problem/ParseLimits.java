@@ -0,0 +1,69 @@
+package com.github.t1.problem;
+
+/**
+ * Problem details may come from untrusted sources, e.g. an upstream service, so parsing them is limited in the
+ * nesting depth of the <code>cause</code> chain and in the size of the payload (in bytes or chars, depending on the
+ * input). When a limit is exceeded, parsing fails with a {@link javax.json.JsonException}.
+ * Only the first {@link #getMaxErrors() max errors} {@link ProblemErrors} are kept; the rest are only counted.
+ * The number of extension members per problem is limited, too.
+ *
+ * The defaults can be set with the system properties {@value #MAX_CAUSE_DEPTH_PROPERTY} (default
+ * {@value #DEFAULT_MAX_CAUSE_DEPTH}), {@value #MAX_PAYLOAD_SIZE_PROPERTY} (default
+ * {@value #DEFAULT_MAX_PAYLOAD_SIZE}), {@value #MAX_ERRORS_PROPERTY} (default {@value #DEFAULT_MAX_ERRORS}), and
+ * {@value #MAX_EXTENSIONS_PROPERTY} (default {@value #DEFAULT_MAX_EXTENSIONS}).
+ *
+ * @see ProblemDetail#fromJson(String)
+ */
+public final class ParseLimits {
+    public static final String MAX_CAUSE_DEPTH_PROPERTY = "com.github.t1.problem.parse.max-cause-depth";
+    public static final String MAX_PAYLOAD_SIZE_PROPERTY = "com.github.t1.problem.parse.max-payload-size";
+    public static final String MAX_ERRORS_PROPERTY = "com.github.t1.problem.parse.max-errors";
+    public static final String MAX_EXTENSIONS_PROPERTY = "com.github.t1.problem.parse.max-extensions";
+
+    public static final int DEFAULT_MAX_CAUSE_DEPTH = 32;
+    public static final long DEFAULT_MAX_PAYLOAD_SIZE = 1024 * 1024;
+    public static final int DEFAULT_MAX_ERRORS = 1000;
+    public static final int DEFAULT_MAX_EXTENSIONS = 1000;
+
+    private static volatile int maxCauseDepth = Integer.getInteger(MAX_CAUSE_DEPTH_PROPERTY, DEFAULT_MAX_CAUSE_DEPTH);
+    private static volatile long maxPayloadSize = Long.getLong(MAX_PAYLOAD_SIZE_PROPERTY, DEFAULT_MAX_PAYLOAD_SIZE);
+    private static volatile int maxErrors = Integer.getInteger(MAX_ERRORS_PROPERTY, DEFAULT_MAX_ERRORS);
+    private static volatile int maxExtensions = Integer.getInteger(MAX_EXTENSIONS_PROPERTY, DEFAULT_MAX_EXTENSIONS);
+
+    /** The maximum number of nested causes; 0 means: no causes at all */
+    public static int getMaxCauseDepth() { return maxCauseDepth; }
+
+    public static void setMaxCauseDepth(int maxCauseDepth) {
+        if (maxCauseDepth < 0)
+            throw new IllegalArgumentException("max cause depth must not be negative but is " + maxCauseDepth);
+        ParseLimits.maxCauseDepth = maxCauseDepth;
+    }
+
+    public static long getMaxPayloadSize() { return maxPayloadSize; }
+
+    public static void setMaxPayloadSize(long maxPayloadSize) {
+        if (maxPayloadSize <= 0)
+            throw new IllegalArgumentException("max payload size must be positive but is " + maxPayloadSize);
+        ParseLimits.maxPayloadSize = maxPayloadSize;
+    }
+
+    /** The maximum number of {@link ProblemErrors} kept per problem; the rest are only counted as omitted */
+    public static int getMaxErrors() { return maxErrors; }
+
+    public static void setMaxErrors(int maxErrors) {
+        if (maxErrors < 0)
+            throw new IllegalArgumentException("max errors must not be negative but is " + maxErrors);
+        ParseLimits.maxErrors = maxErrors;
+    }
+
+    /** The maximum number of extension members per problem */
+    public static int getMaxExtensions() { return maxExtensions; }
+
+    public static void setMaxExtensions(int maxExtensions) {
+        if (maxExtensions < 0)
+            throw new IllegalArgumentException("max extensions must not be negative but is " + maxExtensions);
+        ParseLimits.maxExtensions = maxExtensions;
+    }
+
+    private ParseLimits() {}
+}
@@ -0,0 +1,300 @@
+package com.github.t1.problem;
+
+import com.github.t1.problem.ProblemDetail.ProblemDetailBuilder;
+
+import javax.json.JsonException;
+import java.io.*;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import static java.nio.charset.StandardCharsets.*;
+
+/**
+ * The compact binary encoding of {@link ProblemDetail}s, see {@link ProblemDetail#APPLICATION_PROBLEM_BINARY}.
+ * All numbers are unsigned LEB128 varints, all strings are UTF-8 prefixed with their length in bytes:
+ * <ul>
+ * <li>a header: the magic byte <code>'P'</code>, the version <code>1</code>, the number of types and titles of the
+ * {@link ProblemDictionary} used by the writer, and, if any, the 4 byte fingerprint of these entries</li>
+ * <li>for every problem in the cause chain: a byte with flags for the fields that follow, i.e. the type and title
+ * (as the dictionary index + 1, or 0 followed by the string), the status, the detail, the instance,
+ * the extensions (the number of members followed by the names and raw JSON values), if there is a cause, and the
+ * errors (the number of errors, each with a flags byte for the type, pointer, and detail that follow, and then the
+ * number of omitted errors)</li>
+ * </ul>
+ */
+class ProblemBinary {
+    private static final int MAGIC = 'P';
+    private static final int VERSION = 1;
+
+    private static final int TYPE = 1;
+    private static final int TITLE = 1 << 1;
+    private static final int STATUS = 1 << 2;
+    private static final int DETAIL = 1 << 3;
+    private static final int INSTANCE = 1 << 4;
+    private static final int EXTENSIONS = 1 << 5;
+    private static final int CAUSE = 1 << 6;
+    private static final int ERRORS = 1 << 7;
+
+    private static final int ERROR_TYPE = 1;
+    private static final int ERROR_POINTER = 1 << 1;
+    private static final int ERROR_DETAIL = 1 << 2;
+
+    /** Iterates over the cause chain, which is always the last field, so deep chains don't overflow the stack */
+    static void write(ProblemDetail problem, OutputStream out, ProblemDictionary dictionary) throws IOException {
+        Utf8Output binary = new Utf8Output(out);
+        int types = dictionary.getTypes().size();
+        int titles = dictionary.getTitles().size();
+        binary.raw((char) MAGIC).raw((char) VERSION).varint(types).varint(titles);
+        if (types > 0 || titles > 0) {
+            int fingerprint = dictionary.fingerprint(types, titles);
+            binary.raw((char) (fingerprint >>> 24 & 0xff)).raw((char) (fingerprint >>> 16 & 0xff))
+                    .raw((char) (fingerprint >>> 8 & 0xff)).raw((char) (fingerprint & 0xff));
+        }
+        for (; problem != null; problem = problem.getCause())
+            writeFields(problem, binary, dictionary);
+        binary.flush();
+    }
+
+    private static void writeFields(ProblemDetail problem, Utf8Output out, ProblemDictionary dictionary)
+            throws IOException {
+        Extensions extensions = problem.extensions();
+        out.raw((char) flags(problem));
+        if (problem.getType() != null)
+            reference(out, dictionary.typeIndex(problem.getType()), problem.getType().toString());
+        if (problem.getTitle() != null)
+            reference(out, dictionary.titleIndex(problem.getTitle()), problem.getTitle());
+        if (problem.hasStatus())
+            out.varint(problem.statusCode());
+        if (problem.getDetail() != null)
+            string(out, problem.getDetail());
+        if (problem.getInstance() != null)
+            string(out, problem.getInstance().toString());
+        if (!extensions.isEmpty()) {
+            out.varint(extensions.size());
+            for (int i = 0; i < extensions.size(); i++) {
+                string(out, extensions.name(i));
+                string(out, extensions.json(i));
+            }
+        }
+        if (!problem.getErrors().isEmpty())
+            writeErrors(problem.getErrors(), out, dictionary);
+    }
+
+    private static void writeErrors(ProblemErrors errors, Utf8Output out, ProblemDictionary dictionary)
+            throws IOException {
+        out.varint(errors.size());
+        for (ProblemError error : errors) {
+            out.raw((char) (((error.getType() == null) ? 0 : ERROR_TYPE)
+                    | ((error.getPointer() == null) ? 0 : ERROR_POINTER)
+                    | ((error.getDetail() == null) ? 0 : ERROR_DETAIL)));
+            if (error.getType() != null)
+                reference(out, dictionary.typeIndex(error.getType()), error.getType().toString());
+            if (error.getPointer() != null)
+                string(out, error.getPointer());
+            if (error.getDetail() != null)
+                string(out, error.getDetail());
+        }
+        out.varint(errors.getOmitted());
+    }
+
+    private static int flags(ProblemDetail problem) {
+        return ((problem.getType() == null) ? 0 : TYPE)
+                | ((problem.getTitle() == null) ? 0 : TITLE)
+                | (problem.hasStatus() ? STATUS : 0)
+                | ((problem.getDetail() == null) ? 0 : DETAIL)
+                | ((problem.getInstance() == null) ? 0 : INSTANCE)
+                | (problem.extensions().isEmpty() ? 0 : EXTENSIONS)
+                | ((problem.getCause() == null) ? 0 : CAUSE)
+                | (problem.getErrors().isEmpty() ? 0 : ERRORS);
+    }
+
+    private static void reference(Utf8Output out, int index, String value) throws IOException {
+        if (index < 0)
+            string(out.varint(0), value);
+        else
+            out.varint(index + 1);
+    }
+
+    private static void string(Utf8Output out, String value) throws IOException {
+        out.varint(Utf8Output.utf8Length(value)).text(value);
+    }
+
+
+    /**
+     * Reads a problem detail written with the same dictionary or a prefix of it; an instance stays <code>null</code>,
+     * if it's not set. Nested causes are kept on an explicit stack, so deep chains don't overflow the call stack.
+     */
+    static ProblemDetail read(InputStream in, ProblemDictionary dictionary) throws IOException {
+        Input input = new Input(in);
+        if (input.read() != MAGIC || input.read() != VERSION)
+            throw new IOException("not a version " + VERSION + " binary problem detail");
+        int types = input.varint();
+        int titles = input.varint();
+        if (types > 0 || titles > 0) {
+            int fingerprint = input.read() << 24 | input.read() << 16 | input.read() << 8 | input.read();
+            if (types > dictionary.getTypes().size() || titles > dictionary.getTitles().size()
+                    || fingerprint != dictionary.fingerprint(types, titles))
+                throw new IOException("binary problem detail was written with a different dictionary");
+        }
+
+        Deque<ProblemDetailBuilder> outer = new ArrayDeque<>();
+        while (true) {
+            ProblemDetailBuilder problem = ProblemDetail.builder().instance(null);
+            int flags = input.read();
+            if ((flags & TYPE) != 0) {
+                int index = reference(input, types);
+                problem.type((index < 0) ? Interning.type(input.string()) : dictionary.getTypes().get(index));
+            }
+            if ((flags & TITLE) != 0) {
+                int index = reference(input, titles);
+                problem.title((index < 0) ? Interning.title(input.string()) : dictionary.getTitles().get(index));
+            }
+            if ((flags & STATUS) != 0)
+                problem.status(input.varint());
+            if ((flags & DETAIL) != 0)
+                problem.detail(input.string());
+            if ((flags & INSTANCE) != 0)
+                problem.instance(URI.create(input.string()));
+            if ((flags & EXTENSIONS) != 0)
+                for (int i = input.varint(); i > 0; i--)
+                    if (extension(problem, input.string(), input.string()).extensionCount()
+                            > ParseLimits.getMaxExtensions())
+                        throw new IOException("problem detail exceeds the max extensions of "
+                                + ParseLimits.getMaxExtensions());
+            if ((flags & ERRORS) != 0)
+                problem.errors(readErrors(input, dictionary, types));
+            if ((flags & CAUSE) == 0)
+                return build(problem, outer);
+            if (outer.size() == ParseLimits.getMaxCauseDepth())
+                throw new IOException("problem detail exceeds the max cause depth of " + outer.size());
+            outer.push(problem);
+        }
+    }
+
+    /** The JSON value is re-encoded, so a peer can't inject other members into the JSON we write */
+    private static ProblemDetailBuilder extension(ProblemDetailBuilder problem, String name, String json)
+            throws IOException {
+        try {
+            return problem.rawExtension(name, ProblemJson.value(json));
+        } catch (IllegalArgumentException | JsonException e) {
+            throw new IOException("invalid extension '" + name + "' in binary problem detail", e);
+        }
+    }
+
+    /** Errors beyond the {@link ParseLimits#getMaxErrors()} are read but only counted */
+    private static ProblemErrors readErrors(Input input, ProblemDictionary dictionary, int types) throws IOException {
+        ProblemErrors.Builder errors = ProblemErrors.builder().maxSize(ParseLimits.getMaxErrors());
+        for (int i = input.varint(); i > 0; i--) {
+            int flags = input.read();
+            ProblemError.ProblemErrorBuilder error = ProblemError.builder();
+            if ((flags & ERROR_TYPE) != 0) {
+                int index = reference(input, types);
+                error.type((index < 0) ? Interning.type(input.string()) : dictionary.getTypes().get(index));
+            }
+            if ((flags & ERROR_POINTER) != 0)
+                error.pointer(input.string());
+            if ((flags & ERROR_DETAIL) != 0)
+                error.detail(input.string());
+            errors.error(error.build());
+        }
+        return errors.omitted(input.varlong()).build();
+    }
+
+    /** @return the dictionary index, or -1, if a string follows */
+    private static int reference(Input input, int size) throws IOException {
+        int reference = input.varint();
+        if (reference > size)
+            throw new IOException("invalid dictionary reference " + reference);
+        return reference - 1;
+    }
+
+    private static ProblemDetail build(ProblemDetailBuilder innermost, Deque<ProblemDetailBuilder> outer) {
+        ProblemDetail problem = innermost.build();
+        while (!outer.isEmpty())
+            problem = outer.pop().cause(problem).build();
+        return problem;
+    }
+
+    /** Buffered reading of bytes, varints, and strings, limited by the {@link ParseLimits#getMaxPayloadSize()} */
+    private static class Input {
+        private final InputStream in;
+        private final long maxSize = ParseLimits.getMaxPayloadSize();
+        private final byte[] buffer = new byte[512];
+        private int position;
+        private int limit;
+        /** The number of bytes read into the buffer, before the current content */
+        private long consumed;
+
+        private Input(InputStream in) { this.in = in; }
+
+        private int read() throws IOException {
+            if (position == limit)
+                fill();
+            return buffer[position++] & 0xff;
+        }
+
+        private int varint() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = read();
+                value |= (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    if (value < 0)
+                        break;
+                    return value;
+                }
+            }
+            throw new IOException("invalid varint in binary problem detail");
+        }
+
+        /** A non-negative varint with up to 63 bits */
+        private long varlong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 63; shift += 7) {
+                long b = read();
+                value |= (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    if (value < 0)
+                        break;
+                    return value;
+                }
+            }
+            throw new IOException("invalid varint in binary problem detail");
+        }
+
+        private String string() throws IOException {
+            int length = varint();
+            if (consumed + position + length > maxSize)
+                throw new IOException("problem detail exceeds the max payload size of " + maxSize);
+            if (length <= limit - position) {
+                String string = new String(buffer, position, length, UTF_8);
+                position += length;
+                return string;
+            }
+            byte[] bytes = new byte[length];
+            int copied = limit - position;
+            System.arraycopy(buffer, position, bytes, 0, copied);
+            position = limit;
+            while (copied < length) {
+                fill();
+                int chunk = Math.min(length - copied, limit);
+                System.arraycopy(buffer, 0, bytes, copied, chunk);
+                copied += chunk;
+                position = chunk;
+            }
+            return new String(bytes, UTF_8);
+        }
+
+        private void fill() throws IOException {
+            consumed += limit;
+            position = limit = 0;
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, maxSize + 1 - consumed));
+            if (read < 0)
+                throw new EOFException("unexpected end of binary problem detail");
+            if (consumed + read > maxSize)
+                throw new IOException("problem detail exceeds the max payload size of " + maxSize);
+            limit = read;
+        }
+    }
+}
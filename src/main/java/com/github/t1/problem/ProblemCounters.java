@@ -0,0 +1,174 @@
+package com.github.t1.problem;
+
+import javax.management.*;
+import javax.ws.rs.core.Response.Status.Family;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The default {@link ProblemMetrics}: lock-free, striped counters of the problems created and received by status,
+ * status family, and type, the total time it took, and the cause depth of the problems received.
+ * Counting doesn't allocate, except for the first problem of a new type. As types from upstream services are not
+ * under our control, only the first {@value #MAX_TYPES} types are counted separately, all others as {@link #OTHER}.
+ *
+ * {@link #registerMBean() Register} it to query the counters with JMX.
+ */
+public class ProblemCounters implements ProblemMetrics, ProblemCountersMBean {
+    public static final String OBJECT_NAME = "com.github.t1.problem:type=ProblemCounters";
+    public static final int MAX_TYPES = 1000;
+    /** The key for problems without a type */
+    public static final String UNTYPED = "<untyped>";
+    /** The key for problems of all types beyond the {@link #MAX_TYPES} */
+    public static final String OTHER = "<other>";
+    public static final int MAX_CAUSE_DEPTH_BUCKET = 16;
+
+    private static final int MAX_STATUS = 599;
+    private static final Family[] FAMILIES = Family.values();
+    private static final ProblemCounters DEFAULT = new ProblemCounters();
+
+    public static ProblemCounters getDefault() { return DEFAULT; }
+
+    private static class Counters {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder[] byStatus = adders(MAX_STATUS + 1);
+        private final LongAdder[] byFamily = adders(FAMILIES.length);
+        private final Map<URI, LongAdder> byType = new ConcurrentHashMap<>();
+        private final LongAdder untyped = new LongAdder();
+        private final LongAdder otherType = new LongAdder();
+
+        private void count(ProblemDetail problem, long nanos) {
+            this.count.increment();
+            this.nanos.add(nanos);
+            int status = problem.statusCode();
+            int code = (status < 0 || status > MAX_STATUS) ? 0 : status;
+            byStatus[code].increment();
+            byFamily[Family.familyOf(code).ordinal()].increment();
+            typeSlot(problem.getType()).increment();
+        }
+
+        private LongAdder typeSlot(URI type) {
+            if (type == null)
+                return untyped;
+            LongAdder slot = byType.get(type);
+            if (slot == null) {
+                if (byType.size() >= MAX_TYPES)
+                    return otherType;
+                slot = byType.computeIfAbsent(type, t -> new LongAdder());
+            }
+            return slot;
+        }
+
+        private Map<Integer, Long> byStatus() {
+            Map<Integer, Long> map = new TreeMap<>();
+            for (int i = 0; i < byStatus.length; i++) {
+                long sum = byStatus[i].sum();
+                if (sum > 0)
+                    map.put(i, sum);
+            }
+            return map;
+        }
+
+        private Map<String, Long> byFamily() {
+            Map<String, Long> map = new LinkedHashMap<>();
+            for (Family family : FAMILIES) {
+                long sum = byFamily[family.ordinal()].sum();
+                if (sum > 0)
+                    map.put(family.name(), sum);
+            }
+            return map;
+        }
+
+        private Map<String, Long> byType() {
+            Map<String, Long> map = new TreeMap<>();
+            byType.forEach((type, adder) -> map.put(type.toString(), adder.sum()));
+            if (untyped.sum() > 0)
+                map.put(UNTYPED, untyped.sum());
+            if (otherType.sum() > 0)
+                map.put(OTHER, otherType.sum());
+            return map;
+        }
+
+        private void reset() {
+            count.reset();
+            nanos.reset();
+            Arrays.stream(byStatus).forEach(LongAdder::reset);
+            Arrays.stream(byFamily).forEach(LongAdder::reset);
+            byType.clear();
+            untyped.reset();
+            otherType.reset();
+        }
+    }
+
+    private static LongAdder[] adders(int size) {
+        LongAdder[] adders = new LongAdder[size];
+        for (int i = 0; i < size; i++)
+            adders[i] = new LongAdder();
+        return adders;
+    }
+
+    private final Counters created = new Counters();
+    private final Counters received = new Counters();
+    private final LongAdder[] causeDepths = adders(MAX_CAUSE_DEPTH_BUCKET + 1);
+
+    @Override public void created(ProblemDetail problem, long nanos) { created.count(problem, nanos); }
+
+    @Override public void received(ProblemDetail problem, int causeDepth, long nanos) {
+        received.count(problem, nanos);
+        causeDepths[Math.min(causeDepth, MAX_CAUSE_DEPTH_BUCKET)].increment();
+    }
+
+    @Override public long getCreated() { return created.count.sum(); }
+
+    @Override public long getReceived() { return received.count.sum(); }
+
+    @Override public long getCreatedNanos() { return created.nanos.sum(); }
+
+    @Override public long getReceivedNanos() { return received.nanos.sum(); }
+
+    @Override public Map<Integer, Long> getCreatedByStatus() { return created.byStatus(); }
+
+    @Override public Map<Integer, Long> getReceivedByStatus() { return received.byStatus(); }
+
+    @Override public Map<String, Long> getCreatedByFamily() { return created.byFamily(); }
+
+    @Override public Map<String, Long> getReceivedByFamily() { return received.byFamily(); }
+
+    @Override public Map<String, Long> getCreatedByType() { return created.byType(); }
+
+    @Override public Map<String, Long> getReceivedByType() { return received.byType(); }
+
+    @Override public long[] getCauseDepths() { return Arrays.stream(causeDepths).mapToLong(LongAdder::sum).toArray(); }
+
+    @Override public void reset() {
+        created.reset();
+        received.reset();
+        Arrays.stream(causeDepths).forEach(LongAdder::reset);
+    }
+
+    /** Register as {@value #OBJECT_NAME} with the platform MBean server, if not already registered */
+    public void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name))
+                server.registerMBean(this, name);
+        } catch (JMException e) {
+            throw new IllegalStateException("can't register " + OBJECT_NAME, e);
+        }
+    }
+
+    public void unregisterMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name))
+                server.unregisterMBean(name);
+        } catch (JMException e) {
+            throw new IllegalStateException("can't unregister " + OBJECT_NAME, e);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.github.t1.problem;
+
+import java.util.Map;
+
+/** The JMX view of the {@link ProblemCounters} */
+public interface ProblemCountersMBean {
+    long getCreated();
+
+    long getReceived();
+
+    long getCreatedNanos();
+
+    long getReceivedNanos();
+
+    Map<Integer, Long> getCreatedByStatus();
+
+    Map<Integer, Long> getReceivedByStatus();
+
+    Map<String, Long> getCreatedByFamily();
+
+    Map<String, Long> getReceivedByFamily();
+
+    Map<String, Long> getCreatedByType();
+
+    Map<String, Long> getReceivedByType();
+
+    /** The number of received problems by the number of causes; the last entry counts all deeper chains */
+    long[] getCauseDepths();
+
+    void reset();
+}
@@ -1,17 +1,23 @@
 package com.github.t1.problem;
 
 import lombok.*;
-import lombok.extern.slf4j.Slf4j;
+import lombok.experimental.NonFinal;
+import org.w3c.dom.Element;
 
-import javax.json.*;
+import javax.json.JsonValue;
 import javax.ws.rs.core.*;
 import javax.ws.rs.core.Response.*;
+import javax.xml.bind.*;
 import javax.xml.bind.annotation.*;
-import java.io.StringReader;
+import java.io.*;
 import java.net.URI;
-import java.util.UUID;
-import java.util.function.*;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.function.Consumer;
 
+import static java.nio.charset.StandardCharsets.*;
 import static lombok.AccessLevel.*;
 
 /**
@@ -20,11 +26,10 @@ import static lombok.AccessLevel.*;
  *
  * @see <a href="https://tools.ietf.org/html/draft-ietf-appsawg-http-problem-01">IETF: Problem Details for HTTP APIs</a>
  */
-@Slf4j
 @Value
-@Builder
 @XmlRootElement
-@AllArgsConstructor(access = PRIVATE)
+@XmlType(propOrder = {"type", "title", "xmlStatus", "detail", "instance", "cause",
+        "xmlErrors", "xmlErrorsOmitted", "xmlExtensions"})
 @NoArgsConstructor(access = PRIVATE, force = true)
 public class ProblemDetail {
     /** The prefix for problem media types to be completed by <code>+json</code>, etc. */
@@ -40,6 +45,14 @@ public class ProblemDetail {
     /** The {@link MediaType} Content-Type for {@link ProblemDetail}s in XML */
     public static final MediaType APPLICATION_PROBLEM_XML_TYPE = MediaType.valueOf(APPLICATION_PROBLEM_XML);
 
+    /**
+     * The String Content-Type for {@link ProblemDetail}s in the compact binary encoding for internal service-to-service
+     * calls; this is not a registered media type. See {@link ProblemDetailBinaryProvider}.
+     */
+    public static final String APPLICATION_PROBLEM_BINARY = APPLICATION_PROBLEM_TYPE_PREFIX + "+binary";
+    /** The {@link MediaType} Content-Type for {@link ProblemDetail}s in the compact binary encoding */
+    public static final MediaType APPLICATION_PROBLEM_BINARY_TYPE = MediaType.valueOf(APPLICATION_PROBLEM_BINARY);
+
     /** The default {@link #type} URN scheme and namespace */
     public static final String URN_PROBLEM_PREFIX = "urn:problem:";
     /** The default {@link #type} URN scheme and namespace for java types */
@@ -66,8 +79,8 @@ public class ProblemDetail {
     private String title;
 
     /** The HTTP status code ([RFC7231], Section 6) generated by the origin server for this occurrence of the problem. */
-    @XmlElement
-    private Integer status;
+    @NonFinal @Getter(NONE)
+    private int status;
 
     /**
      * The full, human-readable explanation specific to this occurrence of the problem.
@@ -79,6 +92,8 @@ public class ProblemDetail {
     /**
      * A URI reference that identifies the specific occurrence of the problem.
      * It may or may not yield further information if dereferenced.
+     *
+     * Defaults to a URI generated by the default {@link InstanceIdGenerators#getDefault() InstanceIdGenerator}.
      */
     @XmlElement
     private URI instance;
@@ -89,82 +104,378 @@ public class ProblemDetail {
     @XmlElement
     ProblemDetail cause;
 
+    /**
+     * The extension members, i.e. all members besides the standard fields, e.g. a <code>traceId</code>.
+     * Kept as raw JSON and only parsed when accessed.
+     */
+    @NonFinal @Getter(NONE)
+    Extensions extensions = Extensions.EMPTY;
+
+    /** The unmarshalled {@link #getXmlExtensions() extension elements}, only set while unmarshalling */
+    @NonFinal @Getter(NONE) @EqualsAndHashCode.Exclude
+    List<Element> unmarshalledExtensions;
+
+    /**
+     * The sub-problems, e.g. all validation errors of a bulk request, written as the member <code>errors</code>
+     * and the number of omitted errors as <code>errorsOmitted</code>. This is not defined in the problem spec.
+     */
+    @NonFinal
+    ProblemErrors errors = ProblemErrors.EMPTY;
+
+    /** The unmarshalled {@link #getXmlErrors() errors}, only set while unmarshalling */
+    @NonFinal @Getter(NONE) @EqualsAndHashCode.Exclude
+    List<ProblemError> unmarshalledErrors;
+
+    @NonFinal @Getter(NONE) @EqualsAndHashCode.Exclude
+    Long unmarshalledErrorsOmitted;
+
+    /** The template this problem was created from, if any; it has the fixed fields pre-encoded */
+    @Getter(NONE) @EqualsAndHashCode.Exclude
+    ProblemTemplate template;
+
+    /** The constant this problem was created from, if any; it has everything but the instance pre-encoded */
+    @Getter(NONE) @EqualsAndHashCode.Exclude
+    ConstantProblem constant;
+
+    /** The value of the primitive {@link #status} field, when there is no status */
+    static final int NO_STATUS = 0;
+
+    @Builder
+    private ProblemDetail(URI type, String title, int status, String detail, URI instance, ProblemDetail cause,
+                          Extensions extensions, ProblemErrors errors, ProblemTemplate template,
+                          ConstantProblem constant) {
+        this.type = type;
+        this.title = title;
+        this.status = status;
+        this.detail = detail;
+        this.instance = instance;
+        this.cause = cause;
+        this.extensions = extensions;
+        this.errors = errors;
+        this.template = template;
+        this.constant = constant;
+    }
+
+
+    public Integer getStatus() { return (status == NO_STATUS) ? null : status; }
+
+    /**
+     * Looked up in a table, so it doesn't allocate; codes the {@link Status} enum lacks, e.g. 422, are synthesized.
+     * <code>null</code> if there is no status or it is not between 100 and 599.
+     */
+    public StatusType getStatusType() { return StatusTypes.of(status); }
+
+    boolean hasStatus() { return status != NO_STATUS; }
+
+    /** The primitive status or {@link #NO_STATUS} */
+    int statusCode() { return status; }
+
+    /** The names of the extension members in the order they were added or parsed */
+    public List<String> getExtensionNames() { return extensions.names(); }
+
+    /** The value of the extension member, parsed on first access, or <code>null</code>, if there is no such member */
+    public JsonValue getExtension(String name) { return extensions.value(name); }
+
+    /** The raw JSON text of the extension member, or <code>null</code>, if there is no such member */
+    public String getRawExtension(String name) { return extensions.json(name); }
 
-    public StatusType getStatusType() { return (status == null) ? null : Status.fromStatusCode(status); }
+    Extensions extensions() { return extensions; }
+
+    ProblemTemplate template() { return template; }
+
+    ConstantProblem constant() { return constant; }
+
+    /** A constant has no cause, so this drops the {@link #constant} */
+    ProblemDetail withCause(ProblemDetail cause) {
+        return new ProblemDetail(type, title, status, detail, instance, cause, extensions, errors, template, null);
+    }
+
+    ProblemDetail withInstance(URI instance) {
+        return new ProblemDetail(type, title, status, detail, instance, cause, extensions, errors, template, constant);
+    }
+
+    ProblemDetail withConstant(ConstantProblem constant) {
+        return new ProblemDetail(type, title, status, detail, instance, cause, extensions, errors, template, constant);
+    }
+
+    /** Equal, ignoring the {@link #instance} and the {@link #cause} */
+    boolean isSameProblemAs(ProblemDetail that) {
+        return Objects.equals(type, that.type) && Objects.equals(title, that.title)
+                && status == that.status && Objects.equals(detail, that.detail)
+                && extensions.equals(that.extensions) && errors.equals(that.errors);
+    }
+
+    @XmlElement(name = "status")
+    private Integer getXmlStatus() { return getStatus(); }
+
+    private void setXmlStatus(Integer status) { this.status = (status == null) ? NO_STATUS : status; }
+
+    /**
+     * The JAXB mapping of the {@link #extensions}: an element per member, with the string value or the raw JSON as
+     * text. So in XML, all extension values are strings; members with names that are not valid in XML are skipped.
+     * Computed for every marshalling, as shared problems must not be changed.
+     */
+    @XmlAnyElement
+    private List<Element> getXmlExtensions() {
+        return (unmarshalledExtensions != null || extensions.isEmpty())
+                ? unmarshalledExtensions : XmlExtensions.toElements(extensions);
+    }
+
+    private void setXmlExtensions(List<Element> elements) { this.unmarshalledExtensions = elements; }
+
+    /** The JAXB mapping of the {@link #errors} */
+    @XmlElementWrapper(name = "errors") @XmlElement(name = "error")
+    private List<ProblemError> getXmlErrors() {
+        return (unmarshalledErrors != null || errors.size() == 0) ? unmarshalledErrors : errors.list();
+    }
+
+    private void setXmlErrors(List<ProblemError> errors) { this.unmarshalledErrors = errors; }
+
+    @XmlElement(name = "errorsOmitted")
+    private Long getXmlErrorsOmitted() {
+        return (unmarshalledErrorsOmitted != null || errors.getOmitted() == 0)
+                ? unmarshalledErrorsOmitted : (Long) errors.getOmitted();
+    }
+
+    private void setXmlErrorsOmitted(Long omitted) { this.unmarshalledErrorsOmitted = omitted; }
+
+    /** The instance is still private to the unmarshaller, so it can be completed here */
+    private void afterUnmarshal(Unmarshaller unmarshaller, Object parent) {
+        extensions = XmlExtensions.fromElements(unmarshalledExtensions);
+        ProblemErrors.Builder errors = ProblemErrors.builder().maxSize(ParseLimits.getMaxErrors());
+        if (unmarshalledErrors != null)
+            unmarshalledErrors.forEach(errors::error);
+        this.errors = errors.omitted((unmarshalledErrorsOmitted == null) ? 0 : unmarshalledErrorsOmitted).build();
+        this.unmarshalledExtensions = null;
+        this.unmarshalledErrors = null;
+        this.unmarshalledErrorsOmitted = null;
+    }
 
     public static class ProblemDetailBuilder {
-        private URI instance = URI.create(URN_PROBLEM_INSTANCE_PREFIX + UUID.randomUUID());
+        private Extensions.Builder extensions = Extensions.EMPTY.toBuilder();
+        private ProblemErrors errors = ProblemErrors.EMPTY;
+
+        private URI instance;
+        /** Generating an instance is expensive, so we do it only if it's not set explicitly (even to null) */
+        private boolean instanceSet;
+
+        public ProblemDetailBuilder instance(URI instance) {
+            this.instance = instance;
+            this.instanceSet = true;
+            return this;
+        }
 
         public ProblemDetailBuilder status(StatusType type) { return status(type.getStatusCode()); }
 
+        public ProblemDetailBuilder status(Integer statusCode) {
+            return status((statusCode == null) ? NO_STATUS : statusCode);
+        }
+
         public ProblemDetailBuilder status(int statusCode) {
             this.status = statusCode;
             return this;
         }
 
-        private void set(JsonObject json, String field, Consumer<String> consumer) {
-            set(json, field, consumer, Function.identity());
+        ProblemDetailBuilder template(ProblemTemplate template) {
+            this.template = template;
+            return this;
+        }
+
+        ProblemDetailBuilder constant(ConstantProblem constant) {
+            this.constant = constant;
+            return this;
+        }
+
+        public ProblemDetailBuilder errors(@NonNull ProblemErrors errors) {
+            this.errors = errors;
+            return this;
+        }
+
+        /** Set the parsed errors, keeping the omitted errors that may have been parsed before */
+        ProblemDetailBuilder parsedErrors(ProblemErrors errors) {
+            this.errors = errors.plusOmitted(this.errors.getOmitted());
+            return this;
+        }
+
+        /** Count errors that the sender has omitted, in addition to the errors */
+        ProblemDetailBuilder errorsOmitted(long omitted) {
+            this.errors = errors.plusOmitted(omitted);
+            return this;
+        }
+
+        ProblemDetailBuilder extensions(Extensions extensions) {
+            this.extensions = extensions.toBuilder();
+            return this;
+        }
+
+        int extensionCount() { return extensions.size(); }
+
+        public ProblemDetailBuilder extension(String name, String value) {
+            return rawExtension(name, (value == null) ? "null" : JsonText.quote(value));
+        }
+
+        public ProblemDetailBuilder extension(String name, Number value) {
+            if (value instanceof Double && !Double.isFinite((Double) value)
+                    || value instanceof Float && !Float.isFinite((Float) value))
+                throw new IllegalArgumentException("JSON can't represent " + value);
+            return rawExtension(name, String.valueOf(value));
         }
 
-        private <T> void set(JsonObject json, String field, Consumer<T> consumer, Function<String, T> map) {
-            if (has(json, field))
-                consumer.accept(map.apply(json.getString(field)));
+        public ProblemDetailBuilder extension(String name, boolean value) {
+            return rawExtension(name, String.valueOf(value));
+        }
+
+        public ProblemDetailBuilder extension(String name, JsonValue value) {
+            return rawExtension(name, (value == null) ? "null" : value.toString());
+        }
+
+        /** Add an extension member (or replace it) with the value as raw JSON text, which is not validated. */
+        public ProblemDetailBuilder rawExtension(@NonNull String name, @NonNull String json) {
+            extensions.put(name, json);
+            return this;
+        }
+
+        public ProblemDetail build() {
+            return new ProblemDetail(type, title, status, detail, instanceSet ? instance : InstanceIdGenerators.next(),
+                    cause, extensions.build(), errors, template, constant);
         }
     }
 
 
+    /** Unreadable bodies are rate limited at debug level, as they come in storms when an upstream service fails */
+    private static final ProblemLogger UNREADABLE = ProblemLogger.builder()
+            .name(ProblemDetail.class.getName()).level(ProblemLogger.Level.DEBUG).build();
+
+    /**
+     * Read the problem detail from a (client) response, if its Content-Type is a problem type, i.e.
+     * {@link #APPLICATION_PROBLEM_JSON}, {@link #APPLICATION_PROBLEM_XML}, or {@link #APPLICATION_PROBLEM_BINARY}
+     * (with the {@link ProblemDictionary#getDefault() default dictionary}). The entity is parsed directly from the
+     * stream, which is cheap, if the entity has been buffered. Other responses are not read at all and return
+     * <code>null</code>, as do (rate-limited logged) unreadable bodies.
+     */
     public static ProblemDetail from(Response response) {
-        try {
-            return ProblemDetail.fromJson(response.readEntity(String.class));
-        } catch (RuntimeException e) {
-            log.debug("can't read problem detail body", e);
+        MediaType mediaType = response.getMediaType();
+        if (!isProblem(mediaType))
+            return null;
+        try (InputStream entity = response.readEntity(InputStream.class)) {
+            return received(entity, mediaType);
+        } catch (RuntimeException | IOException e) {
+            UNREADABLE.log(null, response.getStatus(), "can't read problem detail body", e);
             return null;
         }
     }
 
-    public static ProblemDetail fromJson(String string) {
-        JsonObject json = Json.createReader(new StringReader(string)).readObject();
-        return fromJson(json);
+    /** Read a problem detail entity with a problem media type, emitting the metrics and events for received problems */
+    static ProblemDetail received(InputStream entity, MediaType mediaType) throws IOException {
+        long start = System.nanoTime();
+        InputStream in = (entity == null) ? null : ProblemEvents.parsing(entity);
+        ProblemDetail problem = read(in, mediaType);
+        ProblemEvents.parsed(in, problem);
+        Instrumentation.received(problem, start);
+        return problem;
     }
 
-    private static ProblemDetail fromJson(JsonObject json) {
-        ProblemDetailBuilder problem = builder();
-        problem.set(json, "type", problem::type, URI::create);
-        problem.set(json, "title", problem::title);
-        if (has(json, "status"))
-            problem.status(json.getInt("status"));
-        problem.set(json, "detail", problem::detail);
-        problem.set(json, "instance", problem::instance, URI::create);
-        if (has(json, "cause"))
-            problem.cause(fromJson(json.getJsonObject("cause")));
-        return problem.build();
+    static boolean isProblem(MediaType mediaType) {
+        return mediaType != null && "application".equalsIgnoreCase(mediaType.getType())
+                && mediaType.getSubtype().regionMatches(true, 0, "problem+", 0, 8);
+    }
+
+    private static ProblemDetail read(InputStream entity, MediaType mediaType) throws IOException {
+        if (entity == null)
+            throw new NoContentException("no problem detail in body");
+        switch (mediaType.getSubtype().toLowerCase(Locale.ROOT)) {
+            case "problem+json":
+                return ProblemJson.read(entity, ProblemDetailJsonProvider.charset(mediaType));
+            case "problem+xml":
+                return ProblemXml.read(entity);
+            case "problem+binary":
+                return ProblemBinary.read(entity, ProblemDictionary.getDefault());
+            default:
+                throw new IOException("unsupported problem detail type " + mediaType);
+        }
+    }
+
+    /**
+     * Parse a problem detail in one pass with a streaming parser, skipping unknown members.
+     * Parsing is limited by the {@link ParseLimits}.
+     */
+    public static ProblemDetail fromJson(String json) {
+        Object event = ProblemEvents.parsing();
+        ProblemDetail problem = ProblemJson.read(json);
+        ProblemEvents.parsed(event, problem, json);
+        return problem;
     }
 
-    private static boolean has(JsonObject json, String field) {
-        return json.containsKey(field) && !json.isNull(field);
+    /** See {@link #fromJson(String)}; the reader is not closed. */
+    public static ProblemDetail fromJson(Reader json) {
+        Object event = ProblemEvents.parsing();
+        ProblemDetail problem = ProblemJson.read(json);
+        ProblemEvents.parsed(event, problem, -1);
+        return problem;
     }
 
+    /** Parse UTF-8 encoded JSON, see {@link #fromJson(String)}; the stream is not closed. */
+    public static ProblemDetail fromJson(InputStream json) { return fromJson(json, null); }
 
+    /**
+     * Parse UTF-8 encoded JSON, passing the {@link #getErrors() errors} (of the problem and its causes) to the
+     * consumer one by one, as they are parsed, instead of collecting them; so the problem only has the number
+     * of errors that the sender omitted. See {@link #fromJson(String)}; the stream is not closed.
+     */
+    public static ProblemDetail fromJson(InputStream json, Consumer<ProblemError> errors) {
+        InputStream in = ProblemEvents.parsing(json);
+        ProblemDetail problem = ProblemJson.read(in, UTF_8, errors);
+        ProblemEvents.parsed(in, problem);
+        return problem;
+    }
+
+    /** Parse UTF-8 encoded JSON without copying the array, see {@link #fromJson(String)}. */
+    public static ProblemDetail fromJson(byte[] json) { return fromJson(ByteBuffer.wrap(json)); }
+
+    /**
+     * Parse UTF-8 encoded JSON from the position to the limit of the buffer, without copying it and without changing
+     * the buffer's position. See {@link #fromJson(String)}.
+     */
+    public static ProblemDetail fromJson(ByteBuffer json) {
+        Object event = ProblemEvents.parsing();
+        ProblemDetail problem = ProblemJson.read(json);
+        ProblemEvents.parsed(event, problem, json.remaining());
+        return problem;
+    }
+
+
+    /** Iterates over the cause chain, so even very deep chains don't overflow the stack */
     @Override public String toString() {
-        StringBuilder out = new StringBuilder();
-        toString("", out);
+        StringBuilder out = new StringBuilder(128);
+        int depth = 0;
+        for (ProblemDetail problem = this; problem != null; problem = problem.cause, depth++)
+            problem.toString(depth, out);
         return out.toString();
     }
 
-    private void toString(String indent, StringBuilder out) {
-        append(out, indent, "type", type);
-        append(out, indent, "title", title);
-        append(out, indent, "status", status);
-        append(out, indent, "detail", detail);
-        append(out, indent, "instance", instance);
-        if (cause != null) {
-            out.append(indent).append("cause:\n");
-            cause.toString(indent + "  ", out);
-        }
+    private void toString(int depth, StringBuilder out) {
+        append(out, depth, "type", type);
+        append(out, depth, "title", title);
+        if (status != NO_STATUS)
+            indent(out, depth).append("status: ").append(status).append('\n');
+        append(out, depth, "detail", detail);
+        append(out, depth, "instance", instance);
+        for (int i = 0; i < extensions.size(); i++)
+            append(out, depth, extensions.name(i), extensions.json(i));
+        if (!errors.isEmpty())
+            append(out, depth, "errors", errors);
+        if (cause != null)
+            indent(out, depth).append("cause:\n");
     }
 
-    private void append(StringBuilder out, String indent, String title, Object field) {
+    private static void append(StringBuilder out, int depth, String title, Object field) {
         if (field != null)
-            out.append(indent).append(title).append(": ").append(field).append("\n");
+            indent(out, depth).append(title).append(": ").append(field).append('\n');
+    }
+
+    private static StringBuilder indent(StringBuilder out, int depth) {
+        for (int i = 0; i < depth; i++)
+            out.append("  ");
+        return out;
     }
 }
@@ -0,0 +1,75 @@
+package com.github.t1.problem;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.NoContentException;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import static com.github.t1.problem.ProblemDetail.*;
+
+/**
+ * Writes and reads {@link ProblemDetail}s as {@link ProblemDetail#APPLICATION_PROBLEM_BINARY}, a compact varint
+ * encoding for high-volume internal calls, where types and titles from a shared {@link ProblemDictionary} are sent as
+ * small indexes. Reading is limited by the {@link ParseLimits}.
+ *
+ * Register this provider in your JAX-RS application and client, if your container doesn't scan libraries.
+ * Responses are still JSON, unless the client prefers the binary encoding in the <code>Accept</code> header,
+ * see {@link ProblemNegotiationFilter}.
+ */
+@Provider
+@Produces(APPLICATION_PROBLEM_BINARY)
+@Consumes(APPLICATION_PROBLEM_BINARY)
+public class ProblemDetailBinaryProvider
+        implements MessageBodyWriter<ProblemDetail>, MessageBodyReader<ProblemDetail> {
+    private final ProblemDictionary dictionary;
+
+    /** Uses the {@link ProblemDictionary#getDefault() default dictionary} at the time of writing or reading */
+    public ProblemDetailBinaryProvider() { this(null); }
+
+    public ProblemDetailBinaryProvider(ProblemDictionary dictionary) { this.dictionary = dictionary; }
+
+    private ProblemDictionary dictionary() {
+        return (dictionary == null) ? ProblemDictionary.getDefault() : dictionary;
+    }
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return ProblemDetail.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public void writeTo(ProblemDetail problemDetail, Class<?> type, Type genericType, Annotation[] annotations,
+                        MediaType mediaType, MultivaluedMap<String, Object> httpHeaders,
+                        OutputStream entityStream) throws IOException {
+        OutputStream out = ProblemEvents.serializing(entityStream);
+        ProblemBinary.write(problemDetail, out, dictionary());
+        ProblemEvents.serialized(out, APPLICATION_PROBLEM_BINARY);
+    }
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return type == ProblemDetail.class;
+    }
+
+    @Override
+    public ProblemDetail readFrom(Class<ProblemDetail> type, Type genericType, Annotation[] annotations,
+                                  MediaType mediaType, MultivaluedMap<String, String> httpHeaders,
+                                  InputStream entityStream) throws IOException {
+        PushbackInputStream in = new PushbackInputStream(entityStream, 1);
+        int first = in.read();
+        if (first < 0)
+            throw new NoContentException("no problem detail in body");
+        in.unread(first);
+        return ProblemBinary.read(in, dictionary());
+    }
+}
@@ -0,0 +1,70 @@
+package com.github.t1.problem;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.*;
+import javax.ws.rs.ext.*;
+import java.io.*;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+
+import static com.github.t1.problem.ProblemDetail.*;
+import static java.nio.charset.StandardCharsets.*;
+
+/**
+ * Writes and reads {@link ProblemDetail}s as {@link ProblemDetail#APPLICATION_PROBLEM_JSON} by streaming directly to
+ * and from the entity stream, i.e. without reflection, intermediate strings, or a JSON tree.
+ * Reading is limited by the {@link ParseLimits}.
+ *
+ * Register this provider in your JAX-RS application or client, if your container doesn't scan libraries.
+ */
+@Provider
+@Produces(APPLICATION_PROBLEM_JSON)
+@Consumes(APPLICATION_PROBLEM_JSON)
+public class ProblemDetailJsonProvider implements MessageBodyWriter<ProblemDetail>, MessageBodyReader<ProblemDetail> {
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return ProblemDetail.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public void writeTo(ProblemDetail problemDetail, Class<?> type, Type genericType, Annotation[] annotations,
+                        MediaType mediaType, MultivaluedMap<String, Object> httpHeaders,
+                        OutputStream entityStream) throws IOException {
+        if (httpHeaders != null && !isUtf8(mediaType))
+            httpHeaders.putSingle(HttpHeaders.CONTENT_TYPE, mediaType.withCharset(UTF_8.name()));
+        OutputStream out = ProblemEvents.serializing(entityStream);
+        ProblemJson.write(problemDetail, out);
+        ProblemEvents.serialized(out, APPLICATION_PROBLEM_JSON);
+    }
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return type == ProblemDetail.class;
+    }
+
+    @Override
+    public ProblemDetail readFrom(Class<ProblemDetail> type, Type genericType, Annotation[] annotations,
+                                  MediaType mediaType, MultivaluedMap<String, String> httpHeaders,
+                                  InputStream entityStream) throws IOException {
+        PushbackInputStream in = new PushbackInputStream(entityStream, 1);
+        int first = in.read();
+        if (first < 0)
+            throw new NoContentException("no problem detail in body");
+        in.unread(first);
+        return ProblemJson.read(in, charset(mediaType));
+    }
+
+    /** We always write UTF-8, so a different requested charset is replaced in the Content-Type */
+    private static boolean isUtf8(MediaType mediaType) {
+        String charset = (mediaType == null) ? null : mediaType.getParameters().get(MediaType.CHARSET_PARAMETER);
+        return charset == null || UTF_8.name().equalsIgnoreCase(charset);
+    }
+
+    /** JSON is UTF-8 (RFC 8259), unless explicitly specified; this also saves the encoding detection */
+    static Charset charset(MediaType mediaType) {
+        String charset = (mediaType == null) ? null : mediaType.getParameters().get(MediaType.CHARSET_PARAMETER);
+        return (charset == null) ? UTF_8 : Charset.forName(charset);
+    }
+}
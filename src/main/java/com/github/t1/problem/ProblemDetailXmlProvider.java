@@ -0,0 +1,68 @@
+package com.github.t1.problem;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.NoContentException;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import static com.github.t1.problem.ProblemDetail.*;
+
+/**
+ * Writes and reads {@link ProblemDetail}s as {@link ProblemDetail#APPLICATION_PROBLEM_XML} by streaming directly to
+ * and from the entity stream, i.e. without JAXB, but with the same layout as JAXB. {@link ConstantProblem}s are
+ * written from their pre-encoded bytes. Reading is limited by the {@link ParseLimits}.
+ *
+ * Register this provider in your JAX-RS application or client, if your container doesn't scan libraries.
+ */
+@Provider
+@Produces(APPLICATION_PROBLEM_XML)
+@Consumes(APPLICATION_PROBLEM_XML)
+public class ProblemDetailXmlProvider implements MessageBodyWriter<ProblemDetail>, MessageBodyReader<ProblemDetail> {
+    private final boolean formatted;
+
+    public ProblemDetailXmlProvider() { this(false); }
+
+    /** Formatted like JAXB with <code>JAXB_FORMATTED_OUTPUT</code>, i.e. a line per element, indented by 4 spaces */
+    public ProblemDetailXmlProvider(boolean formatted) { this.formatted = formatted; }
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return ProblemDetail.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public void writeTo(ProblemDetail problemDetail, Class<?> type, Type genericType, Annotation[] annotations,
+                        MediaType mediaType, MultivaluedMap<String, Object> httpHeaders,
+                        OutputStream entityStream) throws IOException {
+        OutputStream out = ProblemEvents.serializing(entityStream);
+        ProblemXml.write(problemDetail, out, formatted);
+        ProblemEvents.serialized(out, APPLICATION_PROBLEM_XML);
+    }
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return type == ProblemDetail.class;
+    }
+
+    @Override
+    public ProblemDetail readFrom(Class<ProblemDetail> type, Type genericType, Annotation[] annotations,
+                                  MediaType mediaType, MultivaluedMap<String, String> httpHeaders,
+                                  InputStream entityStream) throws IOException {
+        PushbackInputStream in = new PushbackInputStream(entityStream, 1);
+        int first = in.read();
+        if (first < 0)
+            throw new NoContentException("no problem detail in body");
+        in.unread(first);
+        return ProblemXml.read(in);
+    }
+}
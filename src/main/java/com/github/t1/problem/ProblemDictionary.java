@@ -0,0 +1,78 @@
+package com.github.t1.problem;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Singular;
+
+import java.net.URI;
+import java.util.*;
+
+import static java.nio.charset.StandardCharsets.*;
+
+/**
+ * The recurring types and titles that both sides of an {@link ProblemDetail#APPLICATION_PROBLEM_BINARY} connection
+ * know in advance, so they are sent as small indexes instead of strings.
+ *
+ * The encoding contains the number of entries the writer used and a fingerprint of them, so a reader rejects
+ * problems written with a different dictionary, but it accepts problems written with an older dictionary, if new
+ * entries have only been appended. So for a rolling update, append new entries and update the readers first.
+ *
+ * The default dictionary is empty, i.e. all types and titles are sent as strings.
+ */
+public final class ProblemDictionary {
+    public static final ProblemDictionary EMPTY = builder().build();
+
+    private static volatile ProblemDictionary defaultDictionary = EMPTY;
+
+    public static ProblemDictionary getDefault() { return defaultDictionary; }
+
+    public static void setDefault(@NonNull ProblemDictionary dictionary) { defaultDictionary = dictionary; }
+
+    @Getter private final List<URI> types;
+    @Getter private final List<String> titles;
+
+    private final Map<URI, Integer> typeIndexes = new HashMap<>();
+    private final Map<String, Integer> titleIndexes = new HashMap<>();
+    /** The fingerprints of the first <code>n</code> entries, so a reader can check a prefix of its dictionary */
+    private final int[] typeFingerprints;
+    private final int[] titleFingerprints;
+
+    @Builder
+    private ProblemDictionary(@Singular List<URI> types, @Singular List<String> titles) {
+        this.types = Collections.unmodifiableList(new ArrayList<>(types));
+        this.titles = Collections.unmodifiableList(new ArrayList<>(titles));
+        this.typeFingerprints = new int[types.size() + 1];
+        this.titleFingerprints = new int[titles.size() + 1];
+        typeFingerprints[0] = titleFingerprints[0] = FNV_OFFSET;
+        for (int i = 0; i < types.size(); i++) {
+            if (typeIndexes.put(types.get(i), i) != null)
+                throw new IllegalArgumentException("duplicate type " + types.get(i));
+            typeFingerprints[i + 1] = fingerprint(typeFingerprints[i], types.get(i).toString());
+        }
+        for (int i = 0; i < titles.size(); i++) {
+            if (titleIndexes.put(titles.get(i), i) != null)
+                throw new IllegalArgumentException("duplicate title " + titles.get(i));
+            titleFingerprints[i + 1] = fingerprint(titleFingerprints[i], titles.get(i));
+        }
+    }
+
+    /** The index of the type or -1, if it's not in this dictionary */
+    int typeIndex(URI type) { return typeIndexes.getOrDefault(type, -1); }
+
+    /** The index of the title or -1, if it's not in this dictionary */
+    int titleIndex(String title) { return titleIndexes.getOrDefault(title, -1); }
+
+    /** The fingerprint of the first <code>types</code> types and <code>titles</code> titles */
+    int fingerprint(int types, int titles) { return typeFingerprints[types] * 31 + titleFingerprints[titles]; }
+
+    private static final int FNV_OFFSET = 0x811c9dc5;
+    private static final int FNV_PRIME = 0x01000193;
+
+    /** FNV-1a over the UTF-8 bytes and a terminator, so <code>["ab"]</code> differs from <code>["a", "b"]</code> */
+    private static int fingerprint(int hash, String entry) {
+        for (byte b : entry.getBytes(UTF_8))
+            hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+        return hash * FNV_PRIME;
+    }
+}
@@ -0,0 +1,32 @@
+package com.github.t1.problem;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.Value;
+
+import javax.xml.bind.annotation.XmlElement;
+import java.net.URI;
+
+import static lombok.AccessLevel.*;
+
+/**
+ * One entry of the {@link ProblemErrors} of a {@link ProblemDetail}, e.g. a validation error of one record in a bulk
+ * request: all fields are optional.
+ */
+@Value
+@Builder
+@AllArgsConstructor(access = PRIVATE)
+@NoArgsConstructor(access = PRIVATE, force = true)
+public class ProblemError {
+    /** A URI reference that identifies the type of this error, like the {@link ProblemDetail#getType()} */
+    @XmlElement URI type;
+
+    /** A JSON Pointer [RFC6901] to the element of the request that is wrong, e.g. <code>#/records/17/email</code> */
+    @XmlElement String pointer;
+
+    /** A human-readable explanation of this error */
+    @XmlElement String detail;
+
+    public static ProblemError of(String pointer, String detail) { return new ProblemError(null, pointer, detail); }
+}
@@ -0,0 +1,101 @@
+package com.github.t1.problem;
+
+import lombok.EqualsAndHashCode;
+
+import java.util.*;
+
+/**
+ * The ordered sub-problems of a {@link ProblemDetail}, e.g. all validation errors of a bulk request, written as the
+ * member <code>errors</code>. Build them with {@link #builder()}, which appends cheaply and can be capped: errors
+ * beyond the cap are only counted and written as <code>errorsOmitted</code>. The writers stream the entries directly
+ * to the output, and the parsers apply the cap {@link ParseLimits#getMaxErrors()}, so even huge error reports don't
+ * blow up the heap on either side.
+ */
+@EqualsAndHashCode
+public final class ProblemErrors implements Iterable<ProblemError> {
+    public static final ProblemErrors EMPTY = new ProblemErrors(Collections.emptyList(), 0);
+
+    private final List<ProblemError> errors;
+    private final long omitted;
+
+    private ProblemErrors(List<ProblemError> errors, long omitted) {
+        this.errors = errors;
+        this.omitted = omitted;
+    }
+
+    public static Builder builder() { return new Builder(); }
+
+    public boolean isEmpty() { return errors.isEmpty() && omitted == 0; }
+
+    /** The number of errors in this collection, not counting the {@link #getOmitted() omitted} errors */
+    public int size() { return errors.size(); }
+
+    public ProblemError get(int index) { return errors.get(index); }
+
+    /** The number of errors beyond the cap, that are not in this collection */
+    public long getOmitted() { return omitted; }
+
+    @Override public Iterator<ProblemError> iterator() { return errors.iterator(); }
+
+    List<ProblemError> list() { return errors; }
+
+    ProblemErrors plusOmitted(long omitted) {
+        return (omitted == 0) ? this : new ProblemErrors(errors, add(this.omitted, checkOmitted(omitted)));
+    }
+
+    private static long checkOmitted(long omitted) {
+        if (omitted < 0)
+            throw new IllegalArgumentException("omitted errors must not be negative but are " + omitted);
+        return omitted;
+    }
+
+    /** Saturating, as the counts may come from an untrusted sender */
+    private static long add(long omitted, long more) {
+        long sum = omitted + more;
+        return (sum < 0) ? Long.MAX_VALUE : sum;
+    }
+
+    @Override public String toString() {
+        return errors.size() + " errors" + ((omitted == 0) ? "" : (" and " + omitted + " omitted"));
+    }
+
+    public static class Builder {
+        private final List<ProblemError> errors = new ArrayList<>();
+        private int maxSize = Integer.MAX_VALUE;
+        private long omitted;
+
+        private Builder() {}
+
+        /** Only keep this many errors; all others are only counted */
+        public Builder maxSize(int maxSize) {
+            if (maxSize < 0)
+                throw new IllegalArgumentException("max errors must not be negative but is " + maxSize);
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        public Builder error(String pointer, String detail) { return error(ProblemError.of(pointer, detail)); }
+
+        public Builder error(ProblemError error) {
+            if (errors.size() < maxSize)
+                errors.add(error);
+            else
+                omitted = add(omitted, 1);
+            return this;
+        }
+
+        /** Count errors that have been omitted elsewhere, e.g. by the sender; saturates at {@link Long#MAX_VALUE} */
+        public Builder omitted(long omitted) {
+            this.omitted = add(this.omitted, checkOmitted(omitted));
+            return this;
+        }
+
+        /** If more errors are only counted */
+        public boolean isFull() { return errors.size() >= maxSize; }
+
+        public ProblemErrors build() {
+            return (errors.isEmpty() && omitted == 0) ? EMPTY
+                    : new ProblemErrors(Collections.unmodifiableList(new ArrayList<>(errors)), omitted);
+        }
+    }
+}
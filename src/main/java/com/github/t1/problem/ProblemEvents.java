@@ -0,0 +1,125 @@
+package com.github.t1.problem;
+
+import java.io.*;
+
+/**
+ * Emits JDK Flight Recorder events for creating, serializing, and parsing problems, see {@link JfrProblemEvents}.
+ * This class doesn't reference any JFR classes itself, so it works on a JVM without JFR (e.g. Java 8 before
+ * 8u262), where the events are never loaded. When JFR is available but the events are not enabled in the
+ * recording settings, the calls only check a flag and neither count bytes nor compute the cause depth.
+ */
+final class ProblemEvents {
+    private static final boolean AVAILABLE = available();
+
+    private static boolean available() {
+        try {
+            Class.forName("jdk.jfr.Event", false, ProblemEvents.class.getClassLoader());
+            JfrProblemEvents.register();
+            return true;
+        } catch (ClassNotFoundException | LinkageError | RuntimeException e) {
+            return false;
+        }
+    }
+
+    static void created(ProblemDetail problem, boolean stackTrace) {
+        if (AVAILABLE)
+            JfrProblemEvents.created(problem, stackTrace);
+    }
+
+    /** The stream to serialize to: counting the bytes, if the event is enabled */
+    static OutputStream serializing(OutputStream out) {
+        Object event = AVAILABLE ? JfrProblemEvents.serializing() : null;
+        return (event == null) ? out : new CountingOutputStream(out, event);
+    }
+
+    /** Call with the stream returned from {@link #serializing(OutputStream)} */
+    static void serialized(OutputStream out, String mediaType) {
+        if (out instanceof CountingOutputStream) {
+            CountingOutputStream counting = (CountingOutputStream) out;
+            JfrProblemEvents.serialized(counting.event, mediaType, counting.count);
+        }
+    }
+
+    /** The stream to parse from: counting the bytes, if the event is enabled */
+    static InputStream parsing(InputStream in) {
+        Object event = AVAILABLE ? JfrProblemEvents.parsing() : null;
+        return (event == null) ? in : new CountingInputStream(in, event);
+    }
+
+    /** Call with the stream returned from {@link #parsing(InputStream)} */
+    static void parsed(InputStream in, ProblemDetail problem) {
+        if (in instanceof CountingInputStream) {
+            CountingInputStream counting = (CountingInputStream) in;
+            JfrProblemEvents.parsed(counting.event, problem, counting.count);
+        }
+    }
+
+    /** For parsing input that is already in memory: the event to pass to {@link #parsed}, or <code>null</code> */
+    static Object parsing() { return AVAILABLE ? JfrProblemEvents.parsing() : null; }
+
+    /** The size of input from a <code>Reader</code> is unknown, i.e. <code>-1</code> */
+    static void parsed(Object event, ProblemDetail problem, long bytes) {
+        if (event != null)
+            JfrProblemEvents.parsed(event, problem, bytes);
+    }
+
+    static void parsed(Object event, ProblemDetail problem, String json) {
+        if (event != null)
+            JfrProblemEvents.parsed(event, problem, Utf8Output.utf8Length(json));
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        private final Object event;
+        private long count;
+
+        private CountingOutputStream(OutputStream out, Object event) {
+            super(out);
+            this.event = event;
+        }
+
+        @Override public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+            count += length;
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        private final Object event;
+        private long count;
+
+        private CountingInputStream(InputStream in, Object event) {
+            super(in);
+            this.event = event;
+        }
+
+        @Override public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0)
+                count++;
+            return b;
+        }
+
+        @Override public int read(byte[] bytes, int offset, int length) throws IOException {
+            int read = in.read(bytes, offset, length);
+            if (read > 0)
+                count += read;
+            return read;
+        }
+
+        @Override public long skip(long n) throws IOException {
+            long skipped = in.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        /** Marking is not supported, as the count would include the bytes that are read again */
+        @Override public boolean markSupported() { return false; }
+    }
+
+    private ProblemEvents() {}
+}
@@ -0,0 +1,44 @@
+package com.github.t1.problem;
+
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+import javax.ws.rs.ext.Provider;
+import java.io.IOException;
+
+/**
+ * Throws the {@link ProblemExceptions exception} for error responses with a problem detail entity, i.e. the
+ * registered {@link WebException} sub-type for the problem type, or a plain {@link WebException}. If the problem
+ * detail can't be read, it's a plain {@link WebException} (or {@link WebApplicationApplicationException}) with the
+ * parse failure as its cause.
+ * Note that JAX-RS clients wrap exceptions thrown by filters in a
+ * {@link javax.ws.rs.client.ResponseProcessingException ResponseProcessingException}, so catch that and
+ * rethrow its cause.
+ *
+ * Register this filter in your JAX-RS client; it reads the entity itself, so it doesn't need any providers.
+ */
+@Provider
+public class ProblemExceptionFilter implements ClientResponseFilter {
+    private final ProblemExceptions exceptions;
+
+    /** Uses the {@link ProblemExceptions#getDefault() default exceptions} at the time of filtering */
+    public ProblemExceptionFilter() { this(null); }
+
+    public ProblemExceptionFilter(ProblemExceptions exceptions) { this.exceptions = exceptions; }
+
+    private ProblemExceptions exceptions() {
+        return (exceptions == null) ? ProblemExceptions.getDefault() : exceptions;
+    }
+
+    @Override public void filter(ClientRequestContext request, ClientResponseContext response) throws IOException {
+        if (response.getStatus() < 400 || !ProblemDetail.isProblem(response.getMediaType()) || !response.hasEntity())
+            return;
+        ProblemDetail problem;
+        try {
+            problem = ProblemDetail.received(response.getEntityStream(), response.getMediaType());
+        } catch (RuntimeException | IOException e) {
+            throw exceptions().unreadable(response.getStatus(), e);
+        }
+        throw exceptions().toException(problem, response.getStatus());
+    }
+}
@@ -0,0 +1,130 @@
+package com.github.t1.problem;
+
+import lombok.NonNull;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.ext.ExceptionMapper;
+import javax.ws.rs.ext.Provider;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import static com.github.t1.problem.ProblemDetail.*;
+import static javax.ws.rs.core.Response.Status.*;
+
+/**
+ * Maps any exception to a problem detail response (see {@link ProblemResponses#toResponse(Throwable)}):
+ * {@link WebApplicationException}s keep their own response; other exceptions are mapped by the nearest class in their
+ * hierarchy that is either {@link #register(Class, Status) registered} or annotated as {@link ReturnStatus}; all
+ * others are <code>500 Internal Server Error</code>. Exception messages often contain internals, so they are exposed
+ * as <code>detail</code> only if the registration or {@link ReturnStatus#exposeMessage() annotation} opts in.
+ * Unmapped exceptions are logged by the {@link ProblemLogger#getDefault() default ProblemLogger}, rate limited per
+ * exception class.
+ *
+ * You can register third-party exceptions, e.g. <code>register(OptimisticLockException.class, CONFLICT)</code>.
+ * Registrations take precedence over annotations on the same class.
+ *
+ * The mapping of each exception class is resolved only once and kept in a {@link ClassValue}, so after warm-up,
+ * mapping doesn't walk the class hierarchy nor look for annotations. Registering replaces this dispatch table.
+ */
+@Provider
+public class ProblemExceptionMapper implements ExceptionMapper<Throwable> {
+    private static final Function<Throwable, Response> PASS_THROUGH =
+            throwable -> ((WebApplicationException) throwable).getResponse();
+    private static final Function<Throwable, Response> UNMAPPED = ProblemExceptionMapper::unmapped;
+
+    /** The mapping for the exception class, derived from the class where the rule was found */
+    private interface Rule extends Function<Class<?>, Function<Throwable, Response>> {}
+
+    private static volatile Map<Class<?>, Rule> rules = new HashMap<>();
+    private static volatile ClassValue<Function<Throwable, Response>> dispatch = newDispatch();
+
+    /** Map this exception type and its sub-types to the status, and the type and title of the actual exception */
+    public static void register(@NonNull Class<? extends Throwable> type, @NonNull Status status) {
+        register(type, status, false);
+    }
+
+    /** Like {@link #register(Class, Status)}, optionally with the exception message as <code>detail</code> */
+    public static void register(@NonNull Class<? extends Throwable> type, @NonNull Status status,
+                                boolean exposeMessage) {
+        register(type, (Rule) actual -> mapping(ProblemTemplate.of(status, ProblemType.of(actual).getType(),
+                ProblemType.of(actual).getTitle()), exposeMessage));
+    }
+
+    /** Map this exception type and its sub-types to this template */
+    public static void register(@NonNull Class<? extends Throwable> type, @NonNull ProblemTemplate template) {
+        register(type, template, false);
+    }
+
+    /** Like {@link #register(Class, ProblemTemplate)}, optionally with the exception message as <code>detail</code> */
+    public static void register(@NonNull Class<? extends Throwable> type, @NonNull ProblemTemplate template,
+                                boolean exposeMessage) {
+        Function<Throwable, Response> mapping = mapping(template, exposeMessage);
+        register(type, (Rule) actual -> mapping);
+    }
+
+    private static synchronized void register(Class<?> type, Rule rule) {
+        Map<Class<?>, Rule> copy = new HashMap<>(rules);
+        copy.put(type, rule);
+        update(copy);
+    }
+
+    public static synchronized void unregister(@NonNull Class<? extends Throwable> type) {
+        Map<Class<?>, Rule> copy = new HashMap<>(rules);
+        if (copy.remove(type) != null)
+            update(copy);
+    }
+
+    private static void update(Map<Class<?>, Rule> copy) {
+        rules = copy;
+        dispatch = newDispatch();
+    }
+
+    private static ClassValue<Function<Throwable, Response>> newDispatch() {
+        return new ClassValue<Function<Throwable, Response>>() {
+            @Override protected Function<Throwable, Response> computeValue(Class<?> type) { return resolve(type); }
+        };
+    }
+
+    private static Function<Throwable, Response> resolve(Class<?> type) {
+        if (WebApplicationException.class.isAssignableFrom(type))
+            return PASS_THROUGH;
+        Map<Class<?>, Rule> rules = ProblemExceptionMapper.rules;
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            Rule rule = rules.get(current);
+            if (rule != null)
+                return rule.apply(type);
+            ReturnStatus returnStatus = current.getAnnotation(ReturnStatus.class);
+            if (returnStatus != null) {
+                ProblemType problemType = ProblemType.of(type);
+                return mapping(ProblemTemplate.of(returnStatus.value(), problemType.getType(), problemType.getTitle()),
+                        returnStatus.exposeMessage());
+            }
+        }
+        return UNMAPPED;
+    }
+
+    private static Function<Throwable, Response> mapping(ProblemTemplate template, boolean exposeMessage) {
+        if (exposeMessage)
+            return throwable -> template.response(throwable.getMessage());
+        return throwable -> template.response(null);
+    }
+
+    private static Response unmapped(Throwable throwable) {
+        long start = System.nanoTime();
+        ProblemDetail problem = ProblemDetail.builder().status(INTERNAL_SERVER_ERROR).build();
+        URI logKey = ProblemType.of(throwable.getClass()).getType();
+        ProblemLogger.getDefault().log(logKey, problem.statusCode(), problem.toString(), throwable);
+        Response response = Response.status(INTERNAL_SERVER_ERROR).type(APPLICATION_PROBLEM_JSON_TYPE)
+                .entity(problem).build();
+        Instrumentation.created(problem, start);
+        return response;
+    }
+
+    static Response map(Throwable throwable) { return dispatch.get(throwable.getClass()).apply(throwable); }
+
+    @Override public Response toResponse(Throwable exception) { return ProblemResponses.toResponse(exception); }
+}
@@ -0,0 +1,127 @@
+package com.github.t1.problem;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Singular;
+
+import javax.ws.rs.core.Response;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.net.URI;
+import java.util.*;
+
+import static com.github.t1.problem.ProblemDetail.*;
+import static javax.ws.rs.core.Response.Status.Family.*;
+
+/**
+ * The client side reverse of {@link WebExceptionBuilder#from(Class)}: turns received problem details back into the
+ * {@link WebException} sub-types with the same {@link ProblemType#getType() type}, e.g.
+ * <code>urn:problem:java:mypackage.YouDidItWrongException</code>, so clients can catch them.
+ *
+ * Only the types registered here are instantiated, never a class named by the (untrusted) problem type. They need
+ * a constructor taking the received problem detail and passing it on to the
+ * {@link WebException#WebException(ProblemDetail) super constructor}, which uses it as the response entity and
+ * doesn't count it as created, e.g.:
+ *
+ *      YouDidItWrongException(ProblemDetail received) {
+ *          super(received);
+ *      }
+ *
+ * The constructor is resolved only once, when the registry is built.
+ * Other problem types result in a plain {@link WebException} (or {@link WebApplicationApplicationException}).
+ *
+ * @see ProblemExceptionFilter
+ */
+public final class ProblemExceptions {
+    private static final MethodType FACTORY = MethodType.methodType(WebException.class, ProblemDetail.class);
+
+    public static final ProblemExceptions EMPTY = builder().build();
+
+    private static volatile ProblemExceptions defaultExceptions = EMPTY;
+
+    public static ProblemExceptions getDefault() { return defaultExceptions; }
+
+    public static void setDefault(@NonNull ProblemExceptions exceptions) { defaultExceptions = exceptions; }
+
+    private final Map<URI, MethodHandle> factories = new HashMap<>();
+
+    @Builder
+    private ProblemExceptions(@Singular List<Class<? extends WebException>> types) {
+        for (Class<? extends WebException> type : types)
+            if (factories.put(ProblemType.of(type).getType(), factory(type)) != null)
+                throw new IllegalArgumentException("duplicate exception type " + type.getName());
+    }
+
+    /** A method handle <code>(ProblemDetail)WebException</code> calling the received problem constructor */
+    private static MethodHandle factory(Class<? extends WebException> type) {
+        if (Modifier.isAbstract(type.getModifiers()))
+            throw new IllegalArgumentException("can't instantiate abstract exception type " + type.getName());
+        Constructor<? extends WebException> constructor = constructor(type, ProblemDetail.class);
+        if (constructor == null)
+            throw new IllegalArgumentException("exception type " + type.getName()
+                    + " requires a constructor taking the received ProblemDetail");
+        try {
+            return MethodHandles.lookup().unreflectConstructor(constructor).asType(FACTORY);
+        } catch (IllegalAccessException | RuntimeException e) {
+            throw new IllegalArgumentException("can't access the constructor of " + type.getName(), e);
+        }
+    }
+
+    private static <T> Constructor<T> constructor(Class<T> type, Class<?> parameterType) {
+        try {
+            Constructor<T> constructor = type.getDeclaredConstructor(parameterType);
+            constructor.setAccessible(true);
+            return constructor;
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    public boolean contains(URI type) { return factories.containsKey(type); }
+
+    /**
+     * The exception for the {@link ProblemDetail#from(Response) problem detail in the response}, or
+     * <code>null</code>, if there is none.
+     */
+    public WebException toException(Response response) {
+        ProblemDetail problem = ProblemDetail.from(response);
+        return (problem == null) ? null : toException(problem, response.getStatus());
+    }
+
+    /**
+     * The exception for the problem received with this HTTP status; the registered sub-types use the status of the
+     * problem, if it has a valid one.
+     */
+    public WebException toException(@NonNull ProblemDetail problem, int status) {
+        MethodHandle factory = (problem.getType() == null) ? null : factories.get(problem.getType());
+        if (factory == null)
+            return generic(Response.status(status).type(APPLICATION_PROBLEM_JSON_TYPE).entity(problem).build(),
+                    null, null);
+        return create(factory, problem);
+    }
+
+    /** The generic exception for an error response with a problem detail that can't be read */
+    WebException unreadable(int status, Exception cause) {
+        return generic(Response.status(status).build(), "unreadable problem detail: " + cause, cause);
+    }
+
+    private static WebException generic(Response response, String message, Throwable cause) {
+        boolean stackless = Stackless.isEnabledFor(response.getStatusInfo());
+        return (response.getStatusInfo().getFamily() == SERVER_ERROR)
+                ? new WebException(message, response, cause, stackless)
+                : new WebApplicationApplicationException(message, response, cause, stackless);
+    }
+
+    private static WebException create(MethodHandle factory, ProblemDetail problem) {
+        try {
+            return (WebException) factory.invokeExact(problem);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("exception constructor failed", e);
+        }
+    }
+}
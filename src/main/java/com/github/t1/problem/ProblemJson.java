@@ -0,0 +1,401 @@
+package com.github.t1.problem;
+
+import com.github.t1.problem.ProblemDetail.ProblemDetailBuilder;
+
+import javax.json.Json;
+import javax.json.JsonException;
+import javax.json.stream.JsonParser;
+import javax.json.stream.JsonParser.Event;
+import javax.json.stream.JsonParserFactory;
+import java.io.*;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Consumer;
+
+import static java.nio.charset.StandardCharsets.*;
+import static javax.json.stream.JsonParser.Event.*;
+
+/** Streaming JSON mapping of {@link ProblemDetail}s, without reflection or an intermediate tree. */
+class ProblemJson {
+    private static final JsonParserFactory PARSER_FACTORY = Json.createParserFactory(null);
+
+    private static final byte[] TYPE = Utf8Output.encode("\"type\":");
+    private static final byte[] TITLE = Utf8Output.encode("\"title\":");
+    private static final byte[] STATUS = Utf8Output.encode("\"status\":");
+    private static final byte[] DETAIL = Utf8Output.encode("\"detail\":");
+    private static final byte[] INSTANCE = Utf8Output.encode("\"instance\":");
+    private static final byte[] CAUSE = Utf8Output.encode("\"cause\":");
+    private static final byte[] ERRORS = Utf8Output.encode("\"errors\":[");
+    private static final byte[] ERRORS_OMITTED = Utf8Output.encode("\"errorsOmitted\":");
+    private static final byte[] POINTER = Utf8Output.encode("\"pointer\":");
+
+    /** Iterates over the cause chain (which is always the last member), so deep chains don't overflow the stack */
+    static void write(ProblemDetail problem, OutputStream out) throws IOException {
+        Utf8Output json = new Utf8Output(out);
+        int depth = 0;
+        for (; problem != null; problem = problem.getCause()) {
+            ConstantProblem constant = problem.constant();
+            if (constant != null) { // constants never have a cause
+                writeConstant(constant, problem.getInstance(), json);
+                break;
+            }
+            writeMembers(problem, json);
+            depth++;
+        }
+        for (int i = 0; i < depth; i++)
+            json.raw('}');
+        json.flush();
+    }
+
+    private static void writeConstant(ConstantProblem constant, URI instance, Utf8Output out) throws IOException {
+        out.raw(constant.jsonPrefix());
+        if (instance != null)
+            out.raw(',').raw(INSTANCE).string(instance.toString());
+        out.raw(constant.jsonSuffix());
+    }
+
+    /** The opening brace and all members before the instance of a constant problem, which always has a status */
+    static byte[] encodeConstantPrefix(ProblemDetail problem) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Utf8Output out = new Utf8Output(bytes);
+        writeFixedFields(problem, out.raw('{'), true);
+        if (problem.getDetail() != null)
+            out.raw(',').raw(DETAIL).string(problem.getDetail());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /** All members after the instance of a constant problem, and the closing brace */
+    static byte[] encodeConstantSuffix(ProblemDetail problem) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Utf8Output out = new Utf8Output(bytes);
+        Extensions extensions = problem.extensions();
+        for (int i = 0; i < extensions.size(); i++)
+            out.raw(',').string(extensions.name(i)).raw(':').text(extensions.json(i));
+        writeErrors(problem.getErrors(), out, false);
+        out.raw('}');
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /** Writes the opening brace and all members, up to and including the <code>"cause":</code>, if there is one */
+    private static void writeMembers(ProblemDetail problem, Utf8Output out) throws IOException {
+        ProblemTemplate template = problem.template();
+        boolean first;
+        if (template == null) {
+            first = writeFixedFields(problem, out.raw('{'), true);
+        } else {
+            out.raw(template.jsonPrefix());
+            first = false;
+        }
+        if (problem.getDetail() != null) {
+            separator(out, first).raw(DETAIL).string(problem.getDetail());
+            first = false;
+        }
+        if (problem.getInstance() != null) {
+            separator(out, first).raw(INSTANCE).string(problem.getInstance().toString());
+            first = false;
+        }
+        Extensions extensions = problem.extensions();
+        for (int i = 0; i < extensions.size(); i++) {
+            separator(out, first).string(extensions.name(i)).raw(':').text(extensions.json(i));
+            first = false;
+        }
+        first = writeErrors(problem.getErrors(), out, first);
+        if (problem.getCause() != null)
+            separator(out, first).raw(CAUSE);
+    }
+
+    /** Writes the errors one by one directly to the output; returns if it's still the first field */
+    private static boolean writeErrors(ProblemErrors errors, Utf8Output out, boolean first) throws IOException {
+        if (errors.size() > 0) {
+            separator(out, first).raw(ERRORS);
+            for (int i = 0; i < errors.size(); i++)
+                writeError(errors.get(i), separator(out, i == 0));
+            out.raw(']');
+            first = false;
+        }
+        if (errors.getOmitted() > 0) {
+            separator(out, first).raw(ERRORS_OMITTED).number(errors.getOmitted());
+            first = false;
+        }
+        return first;
+    }
+
+    private static void writeError(ProblemError error, Utf8Output out) throws IOException {
+        boolean first = true;
+        out.raw('{');
+        if (error.getType() != null) {
+            out.raw(TYPE).string(error.getType().toString());
+            first = false;
+        }
+        if (error.getPointer() != null) {
+            separator(out, first).raw(POINTER).string(error.getPointer());
+            first = false;
+        }
+        if (error.getDetail() != null)
+            separator(out, first).raw(DETAIL).string(error.getDetail());
+        out.raw('}');
+    }
+
+    /** The fields that are fixed in a {@link ProblemTemplate}; returns if it's still the first field */
+    static boolean writeFixedFields(ProblemDetail problem, Utf8Output out, boolean first) throws IOException {
+        if (problem.getType() != null) {
+            separator(out, first).raw(TYPE).string(problem.getType().toString());
+            first = false;
+        }
+        if (problem.getTitle() != null) {
+            separator(out, first).raw(TITLE).string(problem.getTitle());
+            first = false;
+        }
+        if (problem.hasStatus()) {
+            separator(out, first).raw(STATUS).number(problem.statusCode());
+            first = false;
+        }
+        return first;
+    }
+
+    private static Utf8Output separator(Utf8Output out, boolean first) throws IOException {
+        return first ? out : out.raw(',');
+    }
+
+
+    static ProblemDetail read(String json) {
+        checkPayloadSize(json.length());
+        try (JsonParser parser = PARSER_FACTORY.createParser(new StringReader(json))) {
+            return read(parser, null);
+        }
+    }
+
+    static ProblemDetail read(Reader json) {
+        try (JsonParser parser = PARSER_FACTORY.createParser(new LimitedReader(json))) {
+            return read(parser, null);
+        }
+    }
+
+    static ProblemDetail read(InputStream json, Charset charset) { return read(json, charset, null); }
+
+    static ProblemDetail read(InputStream json, Charset charset, Consumer<ProblemError> errors) {
+        try (JsonParser parser = PARSER_FACTORY.createParser(new LimitedInputStream(json), charset)) {
+            return read(parser, errors);
+        }
+    }
+
+    static ProblemDetail read(ByteBuffer json) {
+        checkPayloadSize(json.remaining());
+        try (JsonParser parser = PARSER_FACTORY.createParser(new ByteBufferInputStream(json.duplicate()), UTF_8)) {
+            return read(parser, null);
+        }
+    }
+
+    /**
+     * Reads the next JSON object from the parser, keeping unknown members as raw extensions.
+     * Nested causes are kept on an explicit stack, so deep chains don't overflow the call stack.
+     * If there is an <code>errors</code> consumer, the errors are passed to it instead of being collected.
+     */
+    private static ProblemDetail read(JsonParser parser, Consumer<ProblemError> errors) {
+        expect(parser.next(), START_OBJECT, "problem detail");
+        Deque<ProblemDetailBuilder> outer = new ArrayDeque<>();
+        ProblemDetailBuilder problem = ProblemDetail.builder();
+        while (true) {
+            Event event = parser.next();
+            if (event == END_OBJECT) {
+                ProblemDetail built = problem.build();
+                if (outer.isEmpty())
+                    return built;
+                problem = outer.pop().cause(built);
+                continue;
+            }
+            String name = parser.getString();
+            Event value = parser.next();
+            switch (name) {
+                case "type":
+                    if (value != VALUE_NULL)
+                        problem.type(Interning.type(string(parser, value, name)));
+                    break;
+                case "title":
+                    if (value != VALUE_NULL)
+                        problem.title(Interning.title(string(parser, value, name)));
+                    break;
+                case "status":
+                    if (value != VALUE_NULL) {
+                        expect(value, VALUE_NUMBER, name);
+                        problem.status(parser.getInt());
+                    }
+                    break;
+                case "detail":
+                    if (value != VALUE_NULL)
+                        problem.detail(string(parser, value, name));
+                    break;
+                case "instance":
+                    if (value != VALUE_NULL)
+                        problem.instance(URI.create(string(parser, value, name)));
+                    break;
+                case "cause":
+                    if (value != VALUE_NULL) {
+                        expect(value, START_OBJECT, name);
+                        if (outer.size() == ParseLimits.getMaxCauseDepth())
+                            throw new JsonException("problem detail exceeds the max cause depth of " + outer.size());
+                        outer.push(problem);
+                        problem = ProblemDetail.builder();
+                    }
+                    break;
+                case "errors":
+                    if (value != VALUE_NULL) {
+                        expect(value, START_ARRAY, name);
+                        problem.parsedErrors(readErrors(parser, errors));
+                    }
+                    break;
+                case "errorsOmitted":
+                    if (value != VALUE_NULL) {
+                        expect(value, VALUE_NUMBER, name);
+                        long omitted = parser.getLong();
+                        if (omitted < 0)
+                            throw new JsonException("invalid errorsOmitted " + parser.getString());
+                        problem.errorsOmitted(omitted);
+                    }
+                    break;
+                default:
+                    if (problem.rawExtension(name, JsonText.copy(parser, value)).extensionCount()
+                            > ParseLimits.getMaxExtensions())
+                        throw new JsonException("problem detail exceeds the max extensions of "
+                                + ParseLimits.getMaxExtensions());
+            }
+        }
+    }
+
+    /**
+     * Re-encode raw JSON text from an untrusted source, checking that it's exactly one JSON value,
+     * so it can't inject members when it's written as an extension.
+     */
+    static String value(String json) {
+        try (JsonParser parser = PARSER_FACTORY.createParser(new StringReader("[" + json + "]"))) {
+            expect(parser.next(), START_ARRAY, "value");
+            Event event = parser.next();
+            if (event == END_ARRAY)
+                throw new JsonException("expected a JSON value but got nothing");
+            String value = JsonText.copy(parser, event);
+            expect(parser.next(), END_ARRAY, "value");
+            return value;
+        }
+    }
+
+    /** Reads one error at a time; errors beyond the {@link ParseLimits#getMaxErrors()} are skipped and counted */
+    private static ProblemErrors readErrors(JsonParser parser, Consumer<ProblemError> consumer) {
+        ProblemErrors.Builder errors = ProblemErrors.builder().maxSize(ParseLimits.getMaxErrors());
+        for (Event event = parser.next(); event != END_ARRAY; event = parser.next()) {
+            expect(event, START_OBJECT, "error");
+            if (consumer != null) {
+                consumer.accept(readError(parser));
+            } else if (errors.isFull()) {
+                parser.skipObject();
+                errors.omitted(1);
+            } else {
+                errors.error(readError(parser));
+            }
+        }
+        return errors.build();
+    }
+
+    private static ProblemError readError(JsonParser parser) {
+        ProblemError.ProblemErrorBuilder error = ProblemError.builder();
+        for (Event event = parser.next(); event != END_OBJECT; event = parser.next()) {
+            String name = parser.getString();
+            Event value = parser.next();
+            if (value == START_OBJECT)
+                parser.skipObject();
+            else if (value == START_ARRAY)
+                parser.skipArray();
+            else if (value == VALUE_STRING && name.equals("type"))
+                error.type(Interning.type(parser.getString()));
+            else if (value == VALUE_STRING && name.equals("pointer"))
+                error.pointer(parser.getString());
+            else if (value == VALUE_STRING && name.equals("detail"))
+                error.detail(parser.getString());
+        }
+        return error.build();
+    }
+
+    private static String string(JsonParser parser, Event value, String name) {
+        expect(value, VALUE_STRING, name);
+        return parser.getString();
+    }
+
+    private static void expect(Event actual, Event expected, String name) {
+        if (actual != expected)
+            throw new JsonException("expected " + expected + " for " + name + " but got " + actual);
+    }
+
+    private static void checkPayloadSize(long size) {
+        long max = ParseLimits.getMaxPayloadSize();
+        if (size > max)
+            throw new JsonException("problem detail exceeds the max payload size of " + max);
+    }
+
+    /** Closing the parser must not close the caller's stream */
+    private static class LimitedInputStream extends FilterInputStream {
+        private long size;
+
+        private LimitedInputStream(InputStream in) { super(in); }
+
+        @Override public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0)
+                checkPayloadSize(++size);
+            return b;
+        }
+
+        @Override public int read(byte[] bytes, int offset, int length) throws IOException {
+            int read = super.read(bytes, offset, length);
+            if (read > 0)
+                checkPayloadSize(size += read);
+            return read;
+        }
+
+        @Override public void close() {}
+    }
+
+    /** Closing the parser must not close the caller's reader */
+    private static class LimitedReader extends FilterReader {
+        private long size;
+
+        private LimitedReader(Reader in) { super(in); }
+
+        @Override public int read() throws IOException {
+            int c = super.read();
+            if (c >= 0)
+                checkPayloadSize(++size);
+            return c;
+        }
+
+        @Override public int read(char[] chars, int offset, int length) throws IOException {
+            int read = super.read(chars, offset, length);
+            if (read > 0)
+                checkPayloadSize(size += read);
+            return read;
+        }
+
+        @Override public void close() {}
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) { this.buffer = buffer; }
+
+        @Override public int read() { return buffer.hasRemaining() ? buffer.get() & 0xff : -1; }
+
+        @Override public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining())
+                return -1;
+            int read = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, read);
+            return read;
+        }
+
+        @Override public int available() { return buffer.remaining(); }
+    }
+}
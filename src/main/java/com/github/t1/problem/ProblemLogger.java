@@ -0,0 +1,259 @@
+package com.github.t1.problem;
+
+import lombok.Builder;
+import lombok.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.core.Response;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.TimeUnit.*;
+
+/**
+ * Logs problems without flooding the logs, e.g. during an outage of an upstream service. Occurrences are tracked
+ * per type and status: each key has a token bucket of <code>burst</code> permits that refills at
+ * <code>permitsPerSecond</code>. While there are permits, occurrences are logged with their stack trace; all others are
+ * only counted and summarized at most once per <code>summaryInterval</code>, e.g.
+ * <code>type urn:problem:foo status 502: 12345 occurrences in last 10s (12335 not logged)</code>.
+ * The summaries are logged with the next occurrence after the interval, or when you call {@link #flush()}.
+ *
+ * The buckets are looked up by type and then by status, so logging doesn't allocate a key.
+ * At most <code>maxKeys</code> keys are tracked; when there are more, keys that were idle for a summary interval are
+ * evicted, and if that's not sufficient, new keys share a single bucket. Looking for idle keys scans all buckets, so
+ * it's done at most once per summary interval; in between, new keys share the single bucket, too.
+ */
+public class ProblemLogger {
+    public enum Level {TRACE, DEBUG, INFO, WARN, ERROR}
+
+    private static final ProblemLogger DEFAULT = builder().build();
+    /** The map key for problems without a type, as the map doesn't allow <code>null</code> keys */
+    private static final URI NO_TYPE = URI.create("");
+
+    public static ProblemLogger getDefault() { return DEFAULT; }
+
+    private final Logger logger;
+    private final Level level;
+    private final int burst;
+    private final double permitsPerNano;
+    private final long summaryIntervalNanos;
+    private final int maxKeys;
+
+    /** The buckets per type; most types occur with only one or two statuses, so the array is simply scanned */
+    private final Map<URI, Bucket[]> buckets = new ConcurrentHashMap<>();
+    private final AtomicInteger keys = new AtomicInteger();
+    private final Bucket overflow;
+    /** The earliest time of the next scan for idle buckets */
+    private final AtomicLong nextEviction;
+
+    @Builder
+    private ProblemLogger(@NonNull String name, @NonNull Level level, int burst, double permitsPerSecond,
+                          @NonNull Duration summaryInterval, int maxKeys) {
+        if (burst < 0 || permitsPerSecond < 0 || maxKeys < 1)
+            throw new IllegalArgumentException("invalid problem logger limits");
+        this.logger = LoggerFactory.getLogger(name);
+        this.level = level;
+        this.burst = burst;
+        this.permitsPerNano = permitsPerSecond / SECONDS.toNanos(1);
+        this.summaryIntervalNanos = summaryInterval.toNanos();
+        this.maxKeys = maxKeys;
+        this.overflow = new Bucket(null, 0, System.nanoTime());
+        this.nextEviction = new AtomicLong(System.nanoTime());
+    }
+
+    public static class ProblemLoggerBuilder {
+        private String name = ProblemLogger.class.getName();
+        private Level level = Level.WARN;
+        private int burst = 10;
+        private double permitsPerSecond = 1;
+        private Duration summaryInterval = Duration.ofSeconds(10);
+        private int maxKeys = 1000;
+    }
+
+
+    public void log(WebException exception) {
+        Response response = exception.getResponse();
+        Object entity = response.getEntity();
+        if (entity instanceof ProblemDetail)
+            log((ProblemDetail) entity, exception);
+        else if (acquire(null, response.getStatus()))
+            write(exception.getMessage(), exception);
+    }
+
+    public void log(ProblemDetail problem, Throwable throwable) {
+        if (acquire(problem.getType(), problem.statusCode()))
+            write(problem.toString(), throwable);
+    }
+
+    public void log(URI type, int status, String message, Throwable throwable) {
+        if (acquire(type, status))
+            write(message, throwable);
+    }
+
+    /** Log the summaries of all keys with occurrences that have not been logged, yet */
+    public void flush() {
+        long now = System.nanoTime();
+        for (Bucket[] byStatus : buckets.values())
+            for (Bucket bucket : byStatus)
+                summarize(bucket, now, true);
+        summarize(overflow, now, true);
+    }
+
+    private boolean acquire(URI type, int status) {
+        if (!isEnabled())
+            return false;
+        long now = System.nanoTime();
+        Bucket bucket = bucket(type, status, now);
+        summarize(bucket, now, false);
+        return bucket.acquire(now);
+    }
+
+    private Bucket bucket(URI type, int status, long now) {
+        URI mapKey = (type == null) ? NO_TYPE : type;
+        Bucket bucket = find(buckets.get(mapKey), type, status);
+        if (bucket != null)
+            return bucket;
+        if (keys.get() >= maxKeys && !evictIdle(now))
+            return overflow;
+        return find(buckets.compute(mapKey, (k, byStatus) -> add(byStatus, type, status, now)), type, status);
+    }
+
+    private static Bucket find(Bucket[] byStatus, URI type, int status) {
+        if (byStatus != null)
+            for (Bucket bucket : byStatus)
+                if (bucket.status == status && Objects.equals(bucket.type, type))
+                    return bucket;
+        return null;
+    }
+
+    /** Called atomically for the type, so the bucket is added only once */
+    private Bucket[] add(Bucket[] byStatus, URI type, int status, long now) {
+        if (find(byStatus, type, status) != null)
+            return byStatus;
+        Bucket[] added = (byStatus == null) ? new Bucket[1] : Arrays.copyOf(byStatus, byStatus.length + 1);
+        added[added.length - 1] = new Bucket(type, status, now);
+        keys.incrementAndGet();
+        return added;
+    }
+
+    private boolean evictIdle(long now) {
+        long next = nextEviction.get();
+        if (now - next < 0 || !nextEviction.compareAndSet(next, now + summaryIntervalNanos))
+            return false;
+        int before = keys.get();
+        for (URI type : buckets.keySet())
+            buckets.computeIfPresent(type, (k, byStatus) -> evictIdle(byStatus, now));
+        return keys.get() < before;
+    }
+
+    /** The remaining buckets, or <code>null</code>, if all are idle, so the type is removed */
+    private Bucket[] evictIdle(Bucket[] byStatus, long now) {
+        Bucket[] remaining = new Bucket[byStatus.length];
+        int count = 0;
+        for (Bucket bucket : byStatus) {
+            if (bucket.isIdle(now)) {
+                summarize(bucket, now, true);
+                keys.decrementAndGet();
+            } else {
+                remaining[count++] = bucket;
+            }
+        }
+        return (count == byStatus.length) ? byStatus : (count == 0) ? null : Arrays.copyOf(remaining, count);
+    }
+
+    private void summarize(Bucket bucket, long now, boolean force) {
+        String summary = bucket.summary(now, force);
+        if (summary != null)
+            write(summary, null);
+    }
+
+    private boolean isEnabled() {
+        switch (level) {
+            case TRACE:
+                return logger.isTraceEnabled();
+            case DEBUG:
+                return logger.isDebugEnabled();
+            case INFO:
+                return logger.isInfoEnabled();
+            case WARN:
+                return logger.isWarnEnabled();
+            default:
+                return logger.isErrorEnabled();
+        }
+    }
+
+    private void write(String message, Throwable throwable) {
+        switch (level) {
+            case TRACE:
+                logger.trace(message, throwable);
+                break;
+            case DEBUG:
+                logger.debug(message, throwable);
+                break;
+            case INFO:
+                logger.info(message, throwable);
+                break;
+            case WARN:
+                logger.warn(message, throwable);
+                break;
+            default:
+                logger.error(message, throwable);
+        }
+    }
+
+    /** The state is only touched while holding the lock of the bucket, i.e. the contention is only per key */
+    private final class Bucket {
+        private final URI type;
+        private final int status;
+        private double tokens = burst;
+        private long refilled;
+        private long lastSeen;
+        private long windowStart;
+        private long occurrences;
+        private long suppressed;
+
+        private Bucket(URI type, int status, long now) {
+            this.type = type;
+            this.status = status;
+            this.refilled = now;
+            this.lastSeen = now;
+            this.windowStart = now;
+        }
+
+        private synchronized boolean acquire(long now) {
+            tokens = Math.min(burst, tokens + (now - refilled) * permitsPerNano);
+            refilled = now;
+            lastSeen = now;
+            occurrences++;
+            if (tokens >= 1) {
+                tokens--;
+                return true;
+            }
+            suppressed++;
+            return false;
+        }
+
+        private synchronized boolean isIdle(long now) { return now - lastSeen >= summaryIntervalNanos; }
+
+        /** Starts a new window when the current one expired, even if there is nothing to report */
+        private synchronized String summary(long now, boolean force) {
+            if (!force && now - windowStart < summaryIntervalNanos)
+                return null;
+            String summary = (suppressed == 0) ? null
+                    : ((this == overflow) ? "other problems" : ("type " + type + " status " + status))
+                    + ": " + occurrences + " occurrences in last " + NANOSECONDS.toSeconds(now - windowStart) + "s"
+                    + " (" + suppressed + " not logged)";
+            occurrences = 0;
+            suppressed = 0;
+            windowStart = now;
+            return summary;
+        }
+    }
+}
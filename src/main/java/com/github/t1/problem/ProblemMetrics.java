@@ -0,0 +1,28 @@
+package com.github.t1.problem;
+
+/**
+ * Instrumentation SPI for problems emitted and received. Implementations must be thread safe and should be cheap,
+ * as they are called on the hot path of every error.
+ *
+ * @see Instrumentation#setMetrics(ProblemMetrics)
+ * @see ProblemCounters
+ */
+public interface ProblemMetrics {
+    ProblemMetrics NOOP = new ProblemMetrics() {
+        @Override public void created(ProblemDetail problem, long nanos) {}
+
+        @Override public void received(ProblemDetail problem, int causeDepth, long nanos) {}
+    };
+
+    /**
+     * A problem was created by {@link WebExceptionBuilder#build()}, a {@link ReturnStatus} sub-type constructor, or a
+     * {@link ProblemTemplate}, taking that many nanoseconds.
+     */
+    void created(ProblemDetail problem, long nanos);
+
+    /**
+     * A problem with that many nested causes was received by {@link ProblemDetail#from(javax.ws.rs.core.Response)},
+     * taking that many nanoseconds to read and parse.
+     */
+    void received(ProblemDetail problem, int causeDepth, long nanos);
+}
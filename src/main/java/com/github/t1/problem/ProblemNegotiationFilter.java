@@ -0,0 +1,40 @@
+package com.github.t1.problem;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.ext.Provider;
+
+import static com.github.t1.problem.ProblemDetail.*;
+import static javax.ws.rs.core.HttpHeaders.*;
+
+/**
+ * Problem responses always have the Content-Type {@link ProblemDetail#APPLICATION_PROBLEM_JSON}, so the container
+ * doesn't negotiate it. This filter switches them to {@link ProblemDetail#APPLICATION_PROBLEM_BINARY}, if the client
+ * explicitly prefers that in the <code>Accept</code> header; wildcards and everything else fall back to JSON.
+ *
+ * Register this filter together with the {@link ProblemDetailBinaryProvider}, if your container doesn't scan libraries.
+ */
+@Provider
+public class ProblemNegotiationFilter implements ContainerResponseFilter {
+    @Override public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+        if (response.getEntity() instanceof ProblemDetail
+                && APPLICATION_PROBLEM_JSON_TYPE.isCompatible(response.getMediaType())) {
+            response.getHeaders().add(VARY, ACCEPT);
+            if (prefersBinary(request))
+                response.getHeaders().putSingle(CONTENT_TYPE, APPLICATION_PROBLEM_BINARY_TYPE);
+        }
+    }
+
+    /** The acceptable media types are sorted by preference, so the first match wins */
+    private static boolean prefersBinary(ContainerRequestContext request) {
+        for (MediaType acceptable : request.getAcceptableMediaTypes()) {
+            if (!acceptable.isWildcardSubtype() && acceptable.isCompatible(APPLICATION_PROBLEM_BINARY_TYPE))
+                return true;
+            if (acceptable.isCompatible(APPLICATION_PROBLEM_JSON_TYPE))
+                return false;
+        }
+        return false;
+    }
+}
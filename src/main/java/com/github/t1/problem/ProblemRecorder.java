@@ -0,0 +1,159 @@
+package com.github.t1.problem;
+
+import lombok.NonNull;
+import lombok.Value;
+
+import java.net.URI;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.*;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * A flight recorder of the most recent problems created on this node, e.g. to see what happened during an incident
+ * without switching on debug logging. Enable it with the system property {@value #CAPACITY_PROPERTY} or
+ * {@link Instrumentation#setRecorder(ProblemRecorder)}.
+ *
+ * The recorder is a fixed-size ring buffer of preallocated slots, each holding a compact snapshot: the timestamp,
+ * status, type, detail (truncated to <code>maxDetailLength</code> chars), and instance. Producers never block or
+ * spin: they claim the next slot with a single CAS; if that slot is still being written by a producer that has been
+ * lapped, or if the producer has been lapped itself, i.e. the slot already holds a newer problem, the problem is
+ * dropped and only {@link #getDropped() counted}. Each slot is a seqlock, so {@link #snapshot()}
+ * never blocks the producers and skips slots that are written while it reads them.
+ */
+public final class ProblemRecorder {
+    public static final String CAPACITY_PROPERTY = "com.github.t1.problem.recorder.capacity";
+    public static final String MAX_DETAIL_LENGTH_PROPERTY = "com.github.t1.problem.recorder.max-detail-length";
+    public static final int DEFAULT_MAX_DETAIL_LENGTH = 200;
+
+    /** The recorder configured by the system properties, or <code>null</code>, if the capacity is not set */
+    static ProblemRecorder fromSystemProperties() {
+        int capacity = Integer.getInteger(CAPACITY_PROPERTY, 0);
+        return (capacity <= 0) ? null : new ProblemRecorder(capacity,
+                Integer.getInteger(MAX_DETAIL_LENGTH_PROPERTY, DEFAULT_MAX_DETAIL_LENGTH));
+    }
+
+    private final int mask;
+    private final int maxDetailLength;
+    private final LongSupplier clock;
+    private final AtomicLong next = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /** Per slot: <code>2 * sequence + 1</code> while being written, <code>2 * sequence + 2</code> when complete */
+    private final AtomicLongArray versions;
+    private final AtomicLongArray timestamps;
+    private final AtomicIntegerArray statuses;
+    private final AtomicReferenceArray<URI> types;
+    private final AtomicReferenceArray<String> details;
+    private final AtomicReferenceArray<URI> instances;
+
+    /** The capacity is rounded up to the next power of two */
+    public ProblemRecorder(int capacity, int maxDetailLength) {
+        this(capacity, maxDetailLength, System::currentTimeMillis);
+    }
+
+    /** With a clock for the timestamps, in epoch millis */
+    public ProblemRecorder(int capacity, int maxDetailLength, @NonNull LongSupplier clock) {
+        if (capacity < 1 || capacity > 1 << 24)
+            throw new IllegalArgumentException("recorder capacity must be between 1 and 2^24 but is " + capacity);
+        if (maxDetailLength < 0)
+            throw new IllegalArgumentException("max detail length must not be negative but is " + maxDetailLength);
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        if (capacity == 1)
+            size = 1;
+        this.mask = size - 1;
+        this.maxDetailLength = maxDetailLength;
+        this.clock = clock;
+        this.versions = new AtomicLongArray(size);
+        this.timestamps = new AtomicLongArray(size);
+        this.statuses = new AtomicIntegerArray(size);
+        this.types = new AtomicReferenceArray<>(size);
+        this.details = new AtomicReferenceArray<>(size);
+        this.instances = new AtomicReferenceArray<>(size);
+    }
+
+    public int getCapacity() { return mask + 1; }
+
+    /** The number of problems recorded so far, including those that have been overwritten or dropped */
+    public long getRecorded() { return next.get(); }
+
+    /** The number of problems that were not recorded, because their slot was busy or already reused */
+    public long getDropped() { return dropped.get(); }
+
+    void record(ProblemDetail problem) {
+        long sequence = next.getAndIncrement();
+        long timestamp = clock.getAsLong();
+        int slot = (int) sequence & mask;
+        long version = versions.get(slot);
+        if ((version & 1) != 0 || version > 2 * sequence || !versions.compareAndSet(slot, version, 2 * sequence + 1)) {
+            dropped.incrementAndGet();
+            return;
+        }
+        timestamps.set(slot, timestamp);
+        statuses.set(slot, problem.statusCode());
+        types.set(slot, problem.getType());
+        details.set(slot, truncate(problem.getDetail()));
+        instances.set(slot, problem.getInstance());
+        versions.set(slot, 2 * sequence + 2);
+    }
+
+    private String truncate(String detail) {
+        return (detail == null || detail.length() <= maxDetailLength) ? detail : detail.substring(0, maxDetailLength);
+    }
+
+    /** All recorded problems that have not been overwritten, oldest first */
+    public List<Entry> snapshot() { return snapshot(entry -> true); }
+
+    public List<Entry> snapshot(int status) { return snapshot(entry -> entry.status == status); }
+
+    public List<Entry> snapshot(URI type) { return snapshot(entry -> type.equals(entry.type)); }
+
+    /** The recorded problems matching the filter, oldest first; doesn't block the producers */
+    public List<Entry> snapshot(Predicate<Entry> filter) {
+        List<Entry> entries = new ArrayList<>();
+        for (int slot = 0; slot <= mask; slot++) {
+            Entry entry = read(slot);
+            if (entry != null && filter.test(entry))
+                entries.add(entry);
+        }
+        entries.sort(Comparator.comparingLong(Entry::getSequence));
+        return entries;
+    }
+
+    /** The entry in the slot, or <code>null</code>, if it's empty or being written */
+    private Entry read(int slot) {
+        long version = versions.get(slot);
+        if (version == 0 || (version & 1) != 0)
+            return null;
+        Entry entry = new Entry(version / 2 - 1, timestamps.get(slot), statuses.get(slot),
+                types.get(slot), details.get(slot), instances.get(slot));
+        return (versions.get(slot) == version) ? entry : null;
+    }
+
+    public void clear() {
+        for (int slot = 0; slot <= mask; slot++) {
+            long version = versions.get(slot);
+            if ((version & 1) == 0)
+                versions.compareAndSet(slot, version, 0);
+        }
+    }
+
+    /** A snapshot of a recorded problem */
+    @Value
+    public static class Entry {
+        /** The position of the problem in the order they were recorded */
+        long sequence;
+        long timestampMillis;
+        /** The status code or 0, if the problem has no status */
+        int status;
+        URI type;
+        /** The detail, possibly truncated */
+        String detail;
+        URI instance;
+
+        public Instant getTimestamp() { return Instant.ofEpochMilli(timestampMillis); }
+    }
+}
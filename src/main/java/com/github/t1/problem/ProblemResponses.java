@@ -0,0 +1,60 @@
+package com.github.t1.problem;
+
+import lombok.NonNull;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import java.util.concurrent.*;
+
+/**
+ * Helpers for asynchronous resources and clients, so error paths can pass problems as values instead of throwing and
+ * catching exceptions, e.g. resources returning a {@link CompletionStage}:
+ *
+ *      return ProblemResponses.respond(service.findAsync(id));
+ */
+public final class ProblemResponses {
+    /**
+     * The response for any throwable, without throwing: {@link CompletionException}s and {@link ExecutionException}s
+     * are unwrapped, and the cause is mapped as by the {@link ProblemExceptionMapper}: {@link WebApplicationException}s
+     * (including {@link WebException}s) have their own response; exceptions that are registered or annotated as
+     * {@link ReturnStatus} get a problem detail like a {@link WebException} sub-type; all others get an
+     * <code>500 Internal Server Error</code> problem that doesn't disclose anything but the instance, and they are
+     * logged with the {@link ProblemLogger#getDefault() default ProblemLogger}.
+     */
+    public static Response toResponse(@NonNull Throwable throwable) {
+        return ProblemExceptionMapper.map(unwrap(throwable));
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        while ((throwable instanceof CompletionException || throwable instanceof ExecutionException)
+                && throwable.getCause() != null)
+            throwable = throwable.getCause();
+        return throwable;
+    }
+
+    /**
+     * Complete with the value of the stage (or a <code>200 OK</code> response with the value as entity), or with the
+     * {@link #toResponse(Throwable) problem response} for a failure.
+     */
+    public static CompletionStage<Response> respond(@NonNull CompletionStage<?> stage) {
+        return stage.handle((value, throwable) -> (throwable != null) ? toResponse(throwable)
+                : (value instanceof Response) ? (Response) value
+                : Response.ok(value).build());
+    }
+
+    /**
+     * Read the problem detail of a response on the executor, so the calling thread, e.g. an event loop, is not
+     * blocked. Completes with <code>null</code>, if the body can't be read as a problem detail.
+     */
+    public static CompletionStage<ProblemDetail> readProblem(@NonNull Response response, @NonNull Executor executor) {
+        return CompletableFuture.supplyAsync(() -> ProblemDetail.from(response), executor);
+    }
+
+    /** Like {@link #readProblem(Response, Executor)}, for a response that will be completed later */
+    public static CompletionStage<ProblemDetail> readProblem(@NonNull CompletionStage<Response> response,
+                                                             @NonNull Executor executor) {
+        return response.thenApplyAsync(ProblemDetail::from, executor);
+    }
+
+    private ProblemResponses() {}
+}
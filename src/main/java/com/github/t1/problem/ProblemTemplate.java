@@ -0,0 +1,114 @@
+package com.github.t1.problem;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+
+import static com.github.t1.problem.ProblemDetail.*;
+import static javax.ws.rs.core.Response.Status.Family.*;
+import static lombok.AccessLevel.*;
+
+/**
+ * A precompiled problem with a fixed status, type, and title, e.g. for high-rate rejections like rate limiting.
+ * Everything static is prepared only once: the server error and stackless flags, and the JSON encoding of the fixed
+ * fields. Creating an exception only fills in the <code>detail</code> and <code>instance</code>.
+ *
+ *      private static final ProblemTemplate RATE_LIMITED = ProblemTemplate.of(TOO_MANY_REQUESTS,
+ *              URI.create("urn:problem:rate-limited"), "rate limited");
+ *
+ *      throw RATE_LIMITED.exception("try again in 10 seconds");
+ */
+@Getter
+public final class ProblemTemplate {
+    public static ProblemTemplate of(@NonNull Status status, URI type, String title) {
+        return new ProblemTemplate(status, type, title);
+    }
+
+    /** A template with the status, type, and title of the {@link ProblemType} */
+    public static ProblemTemplate of(Class<?> type) {
+        ProblemType problemType = ProblemType.of(type);
+        return of(problemType.getStatus(), problemType.getType(), problemType.getTitle());
+    }
+
+    private final Status status;
+    private final URI type;
+    private final String title;
+    private final boolean serverError;
+
+    /** The opening brace and the fixed fields, encoded as JSON */
+    @Getter(NONE)
+    private final byte[] jsonPrefix;
+
+    private ProblemTemplate(Status status, URI type, String title) {
+        this.status = status;
+        this.type = type;
+        this.title = title;
+        this.serverError = status.getFamily() == SERVER_ERROR;
+        this.jsonPrefix = encodeJsonPrefix();
+    }
+
+    private byte[] encodeJsonPrefix() {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            Utf8Output json = new Utf8Output(out);
+            ProblemJson.writeFixedFields(problem(null, null), json.raw('{'), true);
+            json.flush();
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    byte[] jsonPrefix() { return jsonPrefix; }
+
+    /** With an instance generated by the default {@link InstanceIdGenerator} */
+    public ProblemDetail problem(String detail) {
+        return builder(detail).build();
+    }
+
+    public ProblemDetail problem(String detail, URI instance) {
+        return builder(detail).instance(instance).build();
+    }
+
+    private ProblemDetail.ProblemDetailBuilder builder(String detail) {
+        return ProblemDetail.builder().type(type).title(title).status(status).detail(detail).template(this);
+    }
+
+    /** A constant problem with this detail, pre-encoded completely, except for the instance */
+    public ConstantProblem constant(String detail) { return ConstantProblem.of(problem(detail, null)); }
+
+    public Response response(String detail) {
+        long start = System.nanoTime();
+        ProblemDetail problem = problem(detail);
+        Response response = response(problem);
+        Instrumentation.created(problem, start);
+        return response;
+    }
+
+    private Response response(ProblemDetail problem) {
+        return Response.status(status).type(APPLICATION_PROBLEM_JSON_TYPE).entity(problem).build();
+    }
+
+    /** Stackless, if configured in {@link Stackless} */
+    public WebException exception(String detail) { return exception(System.nanoTime(), problem(detail)); }
+
+    public WebException exception(String detail, URI instance) {
+        return exception(System.nanoTime(), problem(detail, instance));
+    }
+
+    private WebException exception(long start, ProblemDetail problem) {
+        Response response = response(problem);
+        boolean stackless = Stackless.isEnabledFor(status);
+        WebException exception = serverError
+                ? new WebException(null, response, null, stackless)
+                : new WebApplicationApplicationException(null, response, null, stackless);
+        Instrumentation.created(problem, start, !stackless);
+        return exception;
+    }
+}
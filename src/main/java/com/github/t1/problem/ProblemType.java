@@ -0,0 +1,83 @@
+package com.github.t1.problem;
+
+import lombok.Getter;
+import lombok.Value;
+
+import javax.ws.rs.core.Response.Status;
+import java.net.URI;
+
+import static com.github.t1.problem.ProblemDetail.*;
+import static javax.ws.rs.core.Response.Status.*;
+import static javax.ws.rs.core.Response.Status.Family.*;
+import static lombok.AccessLevel.*;
+
+/**
+ * The problem metadata derived from an exception class, e.g. a custom {@link WebException} sub-type, computed only
+ * once per class. It's kept in a {@link ClassValue}, so it goes away with the class, e.g. when an application is
+ * redeployed. You can {@link #preload(Iterable) preload} the types you know of when your application starts.
+ *
+ * @see WebExceptionBuilder#from(Class)
+ */
+@Value
+public class ProblemType {
+    private static final String EXCEPTION = "Exception";
+
+    private static final ClassValue<ProblemType> CACHE = new ClassValue<ProblemType>() {
+        @Override protected ProblemType computeValue(Class<?> type) { return new ProblemType(type); }
+    };
+
+    public static ProblemType of(Class<?> type) { return CACHE.get(type); }
+
+    public static void preload(Class<?>... types) {
+        for (Class<?> type : types)
+            of(type);
+    }
+
+    public static void preload(Iterable<? extends Class<?>> types) {
+        for (Class<?> type : types)
+            of(type);
+    }
+
+    /** The {@link ReturnStatus} or {@link Status#BAD_REQUEST} */
+    Status status;
+    /** The {@link ProblemDetail#URN_PROBLEM_JAVA_PREFIX} + the fully qualified class name */
+    URI type;
+    /** The simple class name without the <code>Exception</code> suffix in lower case words */
+    String title;
+    boolean serverError;
+    @Getter(NONE) boolean annotatedStackless;
+
+    private ProblemType(Class<?> type) {
+        ReturnStatus returnStatus = type.getAnnotation(ReturnStatus.class);
+        this.status = (returnStatus == null) ? BAD_REQUEST : returnStatus.value();
+        this.type = Interning.type(URN_PROBLEM_JAVA_PREFIX + type.getName());
+        this.title = Interning.title(title(type));
+        this.serverError = status.getFamily() == SERVER_ERROR;
+        this.annotatedStackless = returnStatus != null && returnStatus.stackless();
+    }
+
+    private static String title(Class<?> type) {
+        String name = type.getSimpleName();
+        if (name.endsWith(EXCEPTION))
+            name = name.substring(0, name.length() - EXCEPTION.length());
+        return camelToWords(name);
+    }
+
+    private static String camelToWords(String in) {
+        StringBuilder out = new StringBuilder(in.length() + 4);
+        for (int i = 0; i < in.length(); i++) {
+            char c = in.charAt(i);
+            if (out.length() > 0 && Character.isUpperCase(c))
+                out.append(' ');
+            out.append(Character.toLowerCase(c));
+        }
+        return out.toString();
+    }
+
+    /** Annotated as {@link ReturnStatus#stackless() stackless} or configured in {@link Stackless} */
+    public boolean isStackless() { return annotatedStackless || Stackless.isEnabledFor(status); }
+
+    ProblemDetail entity(String detail) {
+        return ProblemDetail.builder().type(type).title(title).status(status).detail(detail).build();
+    }
+}
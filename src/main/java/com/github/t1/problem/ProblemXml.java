@@ -0,0 +1,366 @@
+package com.github.t1.problem;
+
+import com.github.t1.problem.ProblemDetail.ProblemDetailBuilder;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.*;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import static javax.xml.stream.XMLStreamConstants.*;
+
+/**
+ * Streaming XML mapping of {@link ProblemDetail}s, without JAXB, but with exactly the same layout that JAXB produces
+ * for the annotated class: the elements <code>type</code>, <code>title</code>, <code>status</code>,
+ * <code>detail</code>, <code>instance</code>, <code>cause</code>, and then the extensions (see
+ * {@link ProblemDetail#getXmlExtensions()}), optionally formatted like <code>JAXB_FORMATTED_OUTPUT</code>.
+ * Reading uses StAX and is limited by the {@link ParseLimits}.
+ */
+class ProblemXml {
+    private static final XMLInputFactory INPUT_FACTORY = inputFactory();
+
+    private static XMLInputFactory inputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    private static final String ROOT = "problemDetail";
+    private static final byte[] DECLARATION =
+            Utf8Output.encode("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>");
+    private static final byte[] INDENT = Utf8Output.encode("    ");
+    private static final byte[] INSTANCE_START = Utf8Output.encode("<instance>");
+    private static final byte[] INSTANCE_END = Utf8Output.encode("</instance>");
+
+    static void write(ProblemDetail problem, OutputStream out, boolean formatted) throws IOException {
+        Utf8Output xml = new Utf8Output(out);
+        ConstantProblem constant = problem.constant();
+        if (constant != null && !formatted) {
+            writeConstant(constant, problem.getInstance(), xml);
+        } else {
+            xml.raw(DECLARATION);
+            newline(xml, formatted);
+            writeElements(problem, xml, formatted);
+        }
+        xml.flush();
+    }
+
+    /**
+     * Iterates over the cause chain, so deep chains don't overflow the stack. As the extensions follow the
+     * <code>cause</code>, they are written when unwinding the chain.
+     */
+    private static void writeElements(ProblemDetail problem, Utf8Output out, boolean formatted) throws IOException {
+        List<ProblemDetail> open = new ArrayList<>();
+        String name = ROOT;
+        for (; problem != null; problem = problem.getCause(), name = "cause") {
+            int depth = open.size();
+            indent(out, depth, formatted).raw('<').text(name);
+            if (isEmpty(problem)) {
+                out.raw('/').raw('>');
+                newline(out, formatted);
+                break;
+            }
+            out.raw('>');
+            newline(out, formatted);
+            writeFieldsBeforeInstance(problem, out, depth + 1, formatted);
+            element(out, depth + 1, formatted, "instance", problem.getInstance());
+            open.add(problem);
+        }
+        for (int depth = open.size() - 1; depth >= 0; depth--) {
+            writeErrors(open.get(depth).getErrors(), out, depth + 1, formatted);
+            writeExtensions(open.get(depth), out, depth + 1, formatted);
+            indent(out, depth, formatted).raw('<').raw('/').text((depth == 0) ? ROOT : "cause").raw('>');
+            newline(out, formatted);
+        }
+    }
+
+    private static void writeFieldsBeforeInstance(ProblemDetail problem, Utf8Output out, int depth, boolean formatted)
+            throws IOException {
+        element(out, depth, formatted, "type", problem.getType());
+        element(out, depth, formatted, "title", problem.getTitle());
+        if (problem.hasStatus()) {
+            indent(out, depth, formatted).raw('<').text("status").raw('>').number(problem.statusCode());
+            out.raw('<').raw('/').text("status").raw('>');
+            newline(out, formatted);
+        }
+        element(out, depth, formatted, "detail", problem.getDetail());
+    }
+
+    private static void writeErrors(ProblemErrors errors, Utf8Output out, int depth, boolean formatted)
+            throws IOException {
+        if (errors.size() > 0) {
+            indent(out, depth, formatted).raw('<').text("errors").raw('>');
+            newline(out, formatted);
+            for (ProblemError error : errors) {
+                indent(out, depth + 1, formatted).raw('<').text("error");
+                if (error.getType() == null && error.getPointer() == null && error.getDetail() == null) {
+                    out.raw('/').raw('>');
+                } else {
+                    out.raw('>');
+                    newline(out, formatted);
+                    element(out, depth + 2, formatted, "type", error.getType());
+                    element(out, depth + 2, formatted, "pointer", error.getPointer());
+                    element(out, depth + 2, formatted, "detail", error.getDetail());
+                    indent(out, depth + 1, formatted).raw('<').raw('/').text("error").raw('>');
+                }
+                newline(out, formatted);
+            }
+            indent(out, depth, formatted).raw('<').raw('/').text("errors").raw('>');
+            newline(out, formatted);
+        }
+        if (errors.getOmitted() > 0) {
+            indent(out, depth, formatted).raw('<').text("errorsOmitted").raw('>').number(errors.getOmitted());
+            out.raw('<').raw('/').text("errorsOmitted").raw('>');
+            newline(out, formatted);
+        }
+    }
+
+    private static void writeExtensions(ProblemDetail problem, Utf8Output out, int depth, boolean formatted)
+            throws IOException {
+        Extensions extensions = problem.extensions();
+        for (int i = 0; i < extensions.size(); i++)
+            if (XmlExtensions.isName(extensions.name(i)))
+                element(out, depth, formatted, extensions.name(i), XmlExtensions.text(extensions, i));
+    }
+
+    private static boolean isEmpty(ProblemDetail problem) {
+        if (problem.getType() != null || problem.getTitle() != null || problem.hasStatus()
+                || problem.getDetail() != null || problem.getInstance() != null || problem.getCause() != null
+                || !problem.getErrors().isEmpty())
+            return false;
+        Extensions extensions = problem.extensions();
+        for (int i = 0; i < extensions.size(); i++)
+            if (XmlExtensions.isName(extensions.name(i)))
+                return false;
+        return true;
+    }
+
+    private static void element(Utf8Output out, int depth, boolean formatted, String name, Object value)
+            throws IOException {
+        if (value == null)
+            return;
+        indent(out, depth, formatted).raw('<').text(name).raw('>').xml(value.toString());
+        out.raw('<').raw('/').text(name).raw('>');
+        newline(out, formatted);
+    }
+
+    private static Utf8Output indent(Utf8Output out, int depth, boolean formatted) throws IOException {
+        if (formatted)
+            for (int i = 0; i < depth; i++)
+                out.raw(INDENT);
+        return out;
+    }
+
+    private static void newline(Utf8Output out, boolean formatted) throws IOException {
+        if (formatted)
+            out.raw('\n');
+    }
+
+    private static void writeConstant(ConstantProblem constant, URI instance, Utf8Output out) throws IOException {
+        out.raw(constant.xmlPrefix());
+        if (instance != null)
+            out.raw(INSTANCE_START).xml(instance.toString()).raw(INSTANCE_END);
+        out.raw(constant.xmlSuffix());
+    }
+
+    /** The (unformatted) encoding of a constant problem, which always has a status, before and after the instance */
+    static byte[][] encodeConstant(ProblemDetail problem) throws IOException {
+        ByteArrayOutputStream head = new ByteArrayOutputStream();
+        Utf8Output out = new Utf8Output(head);
+        out.raw(DECLARATION).raw('<').text(ROOT).raw('>');
+        writeFieldsBeforeInstance(problem, out, 1, false);
+        out.flush();
+
+        ByteArrayOutputStream tail = new ByteArrayOutputStream();
+        out = new Utf8Output(tail);
+        writeErrors(problem.getErrors(), out, 1, false);
+        writeExtensions(problem, out, 1, false);
+        out.raw('<').raw('/').text(ROOT).raw('>');
+        out.flush();
+
+        return new byte[][]{head.toByteArray(), tail.toByteArray()};
+    }
+
+
+    /**
+     * Reads a problem detail like JAXB does, i.e. a missing instance stays <code>null</code>, and extensions are
+     * strings. Nested causes are kept on an explicit stack, so deep chains don't overflow the call stack.
+     */
+    static ProblemDetail read(InputStream in) throws IOException {
+        XMLStreamReader reader = null;
+        try {
+            reader = INPUT_FACTORY.createXMLStreamReader(new LimitedInputStream(in));
+            if (reader.nextTag() != START_ELEMENT || !ROOT.equals(reader.getLocalName()))
+                throw new IOException("expected a " + ROOT + " element but got " + reader.getLocalName());
+            return readElements(reader);
+        } catch (XMLStreamException e) {
+            throw new IOException("can't read problem detail xml: " + e.getMessage(), e);
+        } finally {
+            if (reader != null)
+                close(reader);
+        }
+    }
+
+    private static ProblemDetail readElements(XMLStreamReader reader) throws XMLStreamException, IOException {
+        Deque<ProblemDetailBuilder> outer = new ArrayDeque<>();
+        ProblemDetailBuilder problem = ProblemDetail.builder().instance(null);
+        while (true) {
+            if (reader.nextTag() == END_ELEMENT) {
+                ProblemDetail built = problem.build();
+                if (outer.isEmpty())
+                    return built;
+                problem = outer.pop().cause(built);
+                continue;
+            }
+            String name = reader.getLocalName();
+            switch (name) {
+                case "type":
+                    problem.type(Interning.type(text(reader)));
+                    break;
+                case "title":
+                    problem.title(Interning.title(text(reader)));
+                    break;
+                case "status":
+                    String status = text(reader).trim();
+                    if (!status.isEmpty())
+                        problem.status(parseStatus(status));
+                    break;
+                case "detail":
+                    problem.detail(text(reader));
+                    break;
+                case "instance":
+                    problem.instance(URI.create(text(reader)));
+                    break;
+                case "cause":
+                    if (outer.size() == ParseLimits.getMaxCauseDepth())
+                        throw new IOException("problem detail exceeds the max cause depth of " + outer.size());
+                    outer.push(problem);
+                    problem = ProblemDetail.builder().instance(null);
+                    break;
+                case "errors":
+                    problem.parsedErrors(readErrors(reader));
+                    break;
+                case "errorsOmitted":
+                    long omitted = parseLong(text(reader).trim());
+                    if (omitted < 0)
+                        throw new IOException("invalid errorsOmitted " + omitted);
+                    problem.errorsOmitted(omitted);
+                    break;
+                default:
+                    if (problem.rawExtension(name, JsonText.quote(text(reader))).extensionCount()
+                            > ParseLimits.getMaxExtensions())
+                        throw new IOException("problem detail exceeds the max extensions of "
+                                + ParseLimits.getMaxExtensions());
+            }
+        }
+    }
+
+    /** Errors beyond the {@link ParseLimits#getMaxErrors()} are skipped and counted */
+    private static ProblemErrors readErrors(XMLStreamReader reader) throws XMLStreamException, IOException {
+        ProblemErrors.Builder errors = ProblemErrors.builder().maxSize(ParseLimits.getMaxErrors());
+        while (reader.nextTag() == START_ELEMENT) {
+            if (errors.isFull()) {
+                text(reader);
+                errors.omitted(1);
+                continue;
+            }
+            ProblemError.ProblemErrorBuilder error = ProblemError.builder();
+            while (reader.nextTag() == START_ELEMENT) {
+                switch (reader.getLocalName()) {
+                    case "type":
+                        error.type(Interning.type(text(reader)));
+                        break;
+                    case "pointer":
+                        error.pointer(text(reader));
+                        break;
+                    case "detail":
+                        error.detail(text(reader));
+                        break;
+                    default:
+                        text(reader);
+                }
+            }
+            errors.error(error.build());
+        }
+        return errors.build();
+    }
+
+    private static long parseLong(String value) throws IOException {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IOException("invalid number " + value, e);
+        }
+    }
+
+    private static int parseStatus(String status) throws IOException {
+        try {
+            return Integer.parseInt(status);
+        } catch (NumberFormatException e) {
+            throw new IOException("invalid status " + status, e);
+        }
+    }
+
+    /** All text content of the current element, including nested elements, like the DOM <code>textContent</code> */
+    private static String text(XMLStreamReader reader) throws XMLStreamException {
+        StringBuilder out = new StringBuilder();
+        for (int depth = 1; depth > 0; ) {
+            switch (reader.next()) {
+                case START_ELEMENT:
+                    depth++;
+                    break;
+                case END_ELEMENT:
+                    depth--;
+                    break;
+                case CHARACTERS:
+                case CDATA:
+                case SPACE:
+                case ENTITY_REFERENCE:
+                    out.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    break;
+                default:
+            }
+        }
+        return out.toString();
+    }
+
+    private static void close(XMLStreamReader reader) {
+        try {
+            reader.close();
+        } catch (XMLStreamException e) {
+            // nothing more to read anyway
+        }
+    }
+
+    private static class LimitedInputStream extends FilterInputStream {
+        private long size;
+
+        private LimitedInputStream(InputStream in) { super(in); }
+
+        @Override public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0)
+                checkPayloadSize(++size);
+            return b;
+        }
+
+        @Override public int read(byte[] bytes, int offset, int length) throws IOException {
+            int read = super.read(bytes, offset, length);
+            if (read > 0)
+                checkPayloadSize(size += read);
+            return read;
+        }
+
+        private static void checkPayloadSize(long size) throws IOException {
+            long max = ParseLimits.getMaxPayloadSize();
+            if (size > max)
+                throw new IOException("problem detail exceeds the max payload size of " + max);
+        }
+    }
+}
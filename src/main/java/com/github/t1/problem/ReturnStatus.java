@@ -15,4 +15,13 @@ import static java.lang.annotation.RetentionPolicy.*;
 @Retention(RUNTIME)
 public @interface ReturnStatus {
     Status value();
+
+    /** Skip capturing the stack trace for this exception type, even if not configured in {@link Stackless}. */
+    boolean stackless() default false;
+
+    /**
+     * For other exceptions mapped by the {@link ProblemExceptionMapper}: use the exception message as the
+     * <code>detail</code>. Off by default, as messages of arbitrary exceptions may reveal internals.
+     */
+    boolean exposeMessage() default false;
 }
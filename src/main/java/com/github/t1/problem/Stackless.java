@@ -0,0 +1,62 @@
+package com.github.t1.problem;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.ws.rs.core.Response.Status.Family;
+import javax.ws.rs.core.Response.StatusType;
+import java.util.*;
+
+/**
+ * Capturing the stack trace is the most expensive part of creating a {@link WebException}, and for expected client
+ * errors, nobody ever looks at it. Stack traces are skipped for exceptions with a status in one of the families
+ * configured here, and for sub-types annotated as {@link ReturnStatus#stackless() stackless}.
+ *
+ * The initial families are taken from the system property {@value #PROPERTY}: a comma separated list of
+ * {@link Family} names, e.g. <code>CLIENT_ERROR</code>, or <code>true</code> for all families. Unknown names are
+ * logged and ignored, so a typo doesn't break creating exceptions.
+ */
+@Slf4j
+public final class Stackless {
+    public static final String PROPERTY = "com.github.t1.problem.stackless";
+
+    private static volatile Set<Family> families = parse(System.getProperty(PROPERTY));
+
+    static Set<Family> parse(String property) {
+        if (property == null || property.trim().isEmpty() || "false".equalsIgnoreCase(property.trim()))
+            return EnumSet.noneOf(Family.class);
+        if ("true".equalsIgnoreCase(property.trim()))
+            return EnumSet.allOf(Family.class);
+        Set<Family> set = EnumSet.noneOf(Family.class);
+        for (String name : property.split(",")) {
+            Family family = family(name.trim().toUpperCase(Locale.ROOT));
+            if (family == null)
+                log.warn("ignoring unknown status family '{}' in {}", name.trim(), PROPERTY);
+            else
+                set.add(family);
+        }
+        return set;
+    }
+
+    private static Family family(String name) {
+        for (Family family : Family.values())
+            if (family.name().equals(name))
+                return family;
+        return null;
+    }
+
+    /** Skip the stack trace for exceptions with a status in these families (replacing the previous setting) */
+    public static void enableFor(Family... families) {
+        Set<Family> set = EnumSet.noneOf(Family.class);
+        set.addAll(Arrays.asList(families));
+        Stackless.families = set;
+    }
+
+    /** Capture stack traces for all status families (this doesn't affect {@link ReturnStatus#stackless()}) */
+    public static void disable() { families = EnumSet.noneOf(Family.class); }
+
+    public static boolean isEnabledFor(StatusType status) { return isEnabledFor(status.getFamily()); }
+
+    static boolean isEnabledFor(Family family) { return families.contains(family); }
+
+    private Stackless() {}
+}
@@ -0,0 +1,72 @@
+package com.github.t1.problem;
+
+import lombok.Value;
+
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.Response.Status.Family;
+import javax.ws.rs.core.Response.StatusType;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A precomputed table of the {@link StatusType}s for the codes 100 to 599, so looking them up neither scans nor
+ * allocates, as {@link Status#fromStatusCode(int)} does. Codes that the {@link Status} enum lacks, e.g. 422, get a
+ * synthesized status type with the IANA reason phrase, if there is one.
+ */
+final class StatusTypes {
+    private static final int MIN = 100;
+    private static final int MAX = 599;
+    private static final StatusType[] TABLE = table();
+
+    private static StatusType[] table() {
+        Map<Integer, String> reasons = reasons();
+        StatusType[] table = new StatusType[MAX - MIN + 1];
+        for (int code = MIN; code <= MAX; code++)
+            table[code - MIN] = new Synthesized(code, Family.familyOf(code), reasons.getOrDefault(code, ""));
+        for (Status status : Status.values())
+            if (status.getStatusCode() >= MIN && status.getStatusCode() <= MAX)
+                table[status.getStatusCode() - MIN] = status;
+        return table;
+    }
+
+    /** The registered codes that some versions of the {@link Status} enum lack */
+    private static Map<Integer, String> reasons() {
+        Map<Integer, String> reasons = new HashMap<>();
+        reasons.put(102, "Processing");
+        reasons.put(103, "Early Hints");
+        reasons.put(207, "Multi-Status");
+        reasons.put(208, "Already Reported");
+        reasons.put(226, "IM Used");
+        reasons.put(308, "Permanent Redirect");
+        reasons.put(421, "Misdirected Request");
+        reasons.put(422, "Unprocessable Entity");
+        reasons.put(423, "Locked");
+        reasons.put(424, "Failed Dependency");
+        reasons.put(425, "Too Early");
+        reasons.put(426, "Upgrade Required");
+        reasons.put(428, "Precondition Required");
+        reasons.put(429, "Too Many Requests");
+        reasons.put(431, "Request Header Fields Too Large");
+        reasons.put(451, "Unavailable For Legal Reasons");
+        reasons.put(506, "Variant Also Negotiates");
+        reasons.put(507, "Insufficient Storage");
+        reasons.put(508, "Loop Detected");
+        reasons.put(510, "Not Extended");
+        reasons.put(511, "Network Authentication Required");
+        return reasons;
+    }
+
+    /** The status type for the code, or <code>null</code>, if it's not between 100 and 599 */
+    static StatusType of(int code) { return (code < MIN || code > MAX) ? null : TABLE[code - MIN]; }
+
+    @Value
+    private static class Synthesized implements StatusType {
+        int statusCode;
+        Family family;
+        String reasonPhrase;
+
+        @Override public String toString() { return reasonPhrase; }
+    }
+
+    private StatusTypes() {}
+}
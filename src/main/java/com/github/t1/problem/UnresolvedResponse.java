@@ -0,0 +1,81 @@
+package com.github.t1.problem;
+
+import javax.ws.rs.core.*;
+import java.io.Serializable;
+import java.lang.annotation.Annotation;
+import java.net.URI;
+import java.util.*;
+
+import static javax.ws.rs.core.Response.Status.*;
+
+/**
+ * The placeholder that the custom sub-types of {@link WebException} pass to the <code>WebApplicationException</code>
+ * constructor, as they resolve their real response only later. The responses built by the JAX-RS implementation are
+ * not serializable, but the <code>WebApplicationException</code> keeps it in a non-transient field, so this empty
+ * <code>500</code> response is serializable, so the exception is.
+ */
+final class UnresolvedResponse extends Response implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    static final UnresolvedResponse INSTANCE = new UnresolvedResponse();
+
+    private UnresolvedResponse() {}
+
+    private Object readResolve() { return INSTANCE; }
+
+    @Override public int getStatus() { return INTERNAL_SERVER_ERROR.getStatusCode(); }
+
+    @Override public StatusType getStatusInfo() { return INTERNAL_SERVER_ERROR; }
+
+    @Override public Object getEntity() { return null; }
+
+    @Override public <T> T readEntity(Class<T> entityType) { throw new IllegalStateException("no entity"); }
+
+    @Override public <T> T readEntity(GenericType<T> entityType) { throw new IllegalStateException("no entity"); }
+
+    @Override public <T> T readEntity(Class<T> entityType, Annotation[] annotations) {
+        throw new IllegalStateException("no entity");
+    }
+
+    @Override public <T> T readEntity(GenericType<T> entityType, Annotation[] annotations) {
+        throw new IllegalStateException("no entity");
+    }
+
+    @Override public boolean hasEntity() { return false; }
+
+    @Override public boolean bufferEntity() { return false; }
+
+    @Override public void close() {}
+
+    @Override public MediaType getMediaType() { return null; }
+
+    @Override public Locale getLanguage() { return null; }
+
+    @Override public int getLength() { return -1; }
+
+    @Override public Set<String> getAllowedMethods() { return Collections.emptySet(); }
+
+    @Override public Map<String, NewCookie> getCookies() { return Collections.emptyMap(); }
+
+    @Override public EntityTag getEntityTag() { return null; }
+
+    @Override public Date getDate() { return null; }
+
+    @Override public Date getLastModified() { return null; }
+
+    @Override public URI getLocation() { return null; }
+
+    @Override public Set<Link> getLinks() { return Collections.emptySet(); }
+
+    @Override public boolean hasLink(String relation) { return false; }
+
+    @Override public Link getLink(String relation) { return null; }
+
+    @Override public Link.Builder getLinkBuilder(String relation) { return null; }
+
+    @Override public MultivaluedMap<String, Object> getMetadata() { return new MultivaluedHashMap<>(); }
+
+    @Override public MultivaluedMap<String, String> getStringHeaders() { return new MultivaluedHashMap<>(); }
+
+    @Override public String getHeaderString(String name) { return null; }
+}
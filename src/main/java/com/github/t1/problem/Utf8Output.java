@@ -0,0 +1,177 @@
+package com.github.t1.problem;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes UTF-8 directly to an {@link OutputStream}, with a small buffer and without any intermediate strings, with
+ * escaping for JSON strings and XML text, and varints for the binary encoding. Constant parts, e.g. field names, can
+ * be pre-encoded with {@link #encode(String)}. The caller is responsible for the structure of the format.
+ */
+class Utf8Output {
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] AMP = encode("&amp;");
+    private static final byte[] LT = encode("&lt;");
+    private static final byte[] GT = encode("&gt;");
+    /** Can't be negated */
+    private static final byte[] MIN_LONG = encode(Long.toString(Long.MIN_VALUE));
+
+    static byte[] encode(String constant) { return constant.getBytes(StandardCharsets.UTF_8); }
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[512];
+    private int position;
+
+    Utf8Output(OutputStream out) { this.out = out; }
+
+    Utf8Output raw(byte[] bytes) throws IOException {
+        if (bytes.length > buffer.length - position) {
+            flush();
+            if (bytes.length > buffer.length) {
+                out.write(bytes);
+                return this;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+        return this;
+    }
+
+    Utf8Output raw(char c) throws IOException {
+        if (position == buffer.length)
+            flush();
+        buffer[position++] = (byte) c;
+        return this;
+    }
+
+    Utf8Output number(long value) throws IOException {
+        if (value == Long.MIN_VALUE)
+            return raw(MIN_LONG);
+        if (value < 0) {
+            raw('-');
+            value = -value;
+        }
+        if (value >= 10)
+            number(value / 10);
+        return raw((char) ('0' + value % 10));
+    }
+
+    /** A quoted and escaped JSON string */
+    Utf8Output string(String value) throws IOException {
+        raw('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\')
+                raw('\\').raw(c);
+            else if (c < 0x20)
+                escapeControl(c);
+            else
+                i = utf8(value, i);
+        }
+        return raw('"');
+    }
+
+    /** Escaped as XML character data, like JAXB does it; used by {@link ProblemXml}, which shares this output */
+    Utf8Output xml(String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '&')
+                raw(AMP);
+            else if (c == '<')
+                raw(LT);
+            else if (c == '>')
+                raw(GT);
+            else
+                i = utf8(value, i);
+        }
+        return this;
+    }
+
+    /** An unsigned LEB128 varint; used by {@link ProblemBinary}, which shares this output */
+    Utf8Output varint(long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            raw((char) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        return raw((char) value);
+    }
+
+    /** The number of bytes that {@link #text(String)} writes */
+    static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80 || Character.isSurrogate(c) && !isSurrogatePair(value, i))
+                length++;
+            else if (c < 0x800)
+                length += 2;
+            else if (Character.isHighSurrogate(c)) {
+                length += 4;
+                i++;
+            } else
+                length += 3;
+        }
+        return length;
+    }
+
+    private static boolean isSurrogatePair(String value, int i) {
+        return Character.isHighSurrogate(value.charAt(i)) && i + 1 < value.length()
+                && Character.isLowSurrogate(value.charAt(i + 1));
+    }
+
+    /** Text that already is valid JSON, e.g. a raw value */
+    Utf8Output text(String json) throws IOException {
+        for (int i = 0; i < json.length(); i++)
+            i = utf8(json, i);
+        return this;
+    }
+
+    /** @return the index of the last char consumed */
+    private int utf8(String value, int i) throws IOException {
+        char c = value.charAt(i);
+        if (c < 0x80) {
+            raw(c);
+        } else if (c < 0x800) {
+            raw((char) (0xc0 | (c >> 6))).raw((char) (0x80 | (c & 0x3f)));
+        } else if (isSurrogatePair(value, i)) {
+            int codePoint = Character.toCodePoint(c, value.charAt(++i));
+            raw((char) (0xf0 | (codePoint >> 18)))
+                    .raw((char) (0x80 | ((codePoint >> 12) & 0x3f)))
+                    .raw((char) (0x80 | ((codePoint >> 6) & 0x3f)))
+                    .raw((char) (0x80 | (codePoint & 0x3f)));
+        } else if (Character.isSurrogate(c)) {
+            raw('?');
+        } else {
+            raw((char) (0xe0 | (c >> 12))).raw((char) (0x80 | ((c >> 6) & 0x3f))).raw((char) (0x80 | (c & 0x3f)));
+        }
+        return i;
+    }
+
+    private void escapeControl(char c) throws IOException {
+        switch (c) {
+            case '\n':
+                raw('\\').raw('n');
+                break;
+            case '\r':
+                raw('\\').raw('r');
+                break;
+            case '\t':
+                raw('\\').raw('t');
+                break;
+            case '\b':
+                raw('\\').raw('b');
+                break;
+            case '\f':
+                raw('\\').raw('f');
+                break;
+            default:
+                raw('\\').raw('u').raw('0').raw('0').raw((char) HEX[c >> 4]).raw((char) HEX[c & 0xf]);
+        }
+    }
+
+    void flush() throws IOException {
+        out.write(buffer, 0, position);
+        position = 0;
+    }
+}
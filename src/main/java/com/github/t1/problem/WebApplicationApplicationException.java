@@ -18,6 +18,18 @@ public class WebApplicationApplicationException extends WebException {
         super(message, response, cause);
     }
 
+    WebApplicationApplicationException(String message, Response response, Throwable cause, boolean stackless) {
+        super(message, response, cause, stackless);
+    }
+
+    WebApplicationApplicationException(String message, Response response, Throwable cause, boolean stackless,
+                                       boolean shared) {
+        super(message, response, cause, stackless, shared);
+    }
+
     /** This constructor is for custom sub-types, which can be annotated as {@link ReturnStatus}. */
     protected WebApplicationApplicationException(String message) { super(message); }
+
+    /** This constructor is for custom sub-types that {@link ProblemExceptions} creates for a received problem. */
+    protected WebApplicationApplicationException(ProblemDetail received) { super(received); }
 }
@@ -1,13 +1,12 @@
 package com.github.t1.problem;
 
-import lombok.*;
-
 import javax.ejb.ApplicationException;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.Response.StatusType;
 
-import static com.github.t1.problem.WebExceptionBuilder.annotatedStatus;
+import static com.github.t1.problem.ProblemDetail.*;
 import static javax.ws.rs.core.Response.Status.*;
 
 /**
@@ -42,6 +41,10 @@ import static javax.ws.rs.core.Response.Status.*;
  *      status: 409
  *      detail: Next time, you'll do better
  *      instance: fb4627b2-8479-4520-a645-d9e866c1d5ef
+ *
+ * Capturing the stack trace can be skipped for expected problems: see {@link Stackless}.
+ * For problems that never change, you can even build a single, shared instance: see
+ * {@link WebExceptionBuilder#buildShared()}.
  */
 public class WebException extends WebApplicationException {
     private static final long serialVersionUID = 1L;
@@ -54,30 +57,98 @@ public class WebException extends WebApplicationException {
 
     public static WebExceptionBuilder builderFor(Status status) { return new WebExceptionBuilder(status); }
 
+    /** Rendering the entity is expensive and often not needed at all, so it's done lazily and cached */
     private String message;
+    /** Not set while the super constructors run, so the stack trace is only captured, if we want it */
+    private final boolean withStackTrace;
+    /**
+     * Custom sub-types resolve their response only after the super constructor ran, i.e. when we know our class.
+     * Responses are not serializable, so a deserialized exception rebuilds it from the annotations and the detail.
+     */
+    private transient Response subTypeResponse;
+    private final String subTypeDetail;
+    /** A {@link WebExceptionBuilder#buildShared() shared} exception hands out a copy of the response per call */
+    private final boolean shared;
 
     @Override public String getMessage() {
-        return (message == null) ? getResponse().getEntity().toString() : message;
+        if (message == null)
+            message = getResponse().getEntity().toString();
+        return message;
+    }
+
+    /**
+     * Containers and filters add headers to the response, so a {@link WebExceptionBuilder#buildShared() shared}
+     * exception returns a fresh copy every time, sharing only the immutable entity.
+     */
+    @Override public Response getResponse() {
+        if (super.getResponse() == UnresolvedResponse.INSTANCE) {
+            if (subTypeResponse == null)
+                subTypeResponse = subTypeResponse(ProblemType.of(getClass()), subTypeDetail);
+            return subTypeResponse;
+        }
+        return shared ? Response.fromResponse(super.getResponse()).build() : super.getResponse();
+    }
+
+    private static Response subTypeResponse(ProblemType problemType, String detail) {
+        return Response.status(problemType.getStatus()).entity(problemType.entity(detail)).build();
     }
 
     public WebException(String message, Response response, Throwable cause) {
-        super(cause, response);
+        this(message, response, cause, false);
+    }
+
+    WebException(String message, Response response, Throwable cause, boolean stackless) {
+        this(message, response, cause, stackless, false);
+    }
+
+    /** Shared exceptions are also stackless */
+    WebException(String message, Response response, Throwable cause, boolean stackless, boolean shared) {
+        super(null, cause, response); // the message computed by the other super constructors is not used
         this.message = message;
+        this.withStackTrace = !stackless && !shared;
+        this.subTypeResponse = null;
+        this.subTypeDetail = null;
+        this.shared = shared;
+        fillInStackTrace();
     }
 
     /** This constructor is for custom sub-types, which can be annotated as {@link ReturnStatus}. */
-    protected WebException(String message) { super(buildResponse(message)); }
-
-    private static Response buildResponse(String message) {
-        Class<?> type = callingType();
-        return Response
-                .status(annotatedStatus(type))
-                .entity(WebExceptionBuilder.from(type).detail(message).buildEntity())
-                .build();
+    protected WebException(String message) {
+        super(null, null, UnresolvedResponse.INSTANCE);
+        long start = System.nanoTime();
+        ProblemType problemType = ProblemType.of(getClass());
+        this.subTypeResponse = subTypeResponse(problemType, message);
+        this.subTypeDetail = message;
+        ProblemDetail problem = (ProblemDetail) subTypeResponse.getEntity();
+        this.withStackTrace = !problemType.isStackless();
+        this.shared = false;
+        fillInStackTrace();
+        Instrumentation.created(problem, start, withStackTrace);
+    }
+
+    /**
+     * This constructor is for custom sub-types that {@link ProblemExceptions} creates for a received problem: it
+     * becomes the entity, so it's not counted as created. The status is the received one, if it's valid.
+     */
+    protected WebException(ProblemDetail received) {
+        super(null, null, UnresolvedResponse.INSTANCE);
+        ProblemType problemType = ProblemType.of(getClass());
+        StatusType status = (received.getStatusType() == null) ? problemType.getStatus() : received.getStatusType();
+        this.subTypeResponse = Response.status(status).type(APPLICATION_PROBLEM_JSON_TYPE).entity(received).build();
+        this.subTypeDetail = received.getDetail();
+        this.withStackTrace = !problemType.isStackless();
+        this.shared = false;
+        fillInStackTrace();
     }
 
-    @SneakyThrows(ClassNotFoundException.class)
-    private static Class<?> callingType() {
-        return Class.forName(new RuntimeException().getStackTrace()[4].getClassName());
+    @Override public synchronized Throwable fillInStackTrace() {
+        return withStackTrace ? super.fillInStackTrace() : this;
     }
+
+    /** Stackless exceptions may be shared, so they must not be changed */
+    @Override public void setStackTrace(StackTraceElement[] stackTrace) {
+        if (withStackTrace)
+            super.setStackTrace(stackTrace);
+    }
+
 }
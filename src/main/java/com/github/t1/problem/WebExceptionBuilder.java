@@ -4,6 +4,7 @@ import com.github.t1.problem.ProblemDetail.*;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 
+import javax.json.JsonValue;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
@@ -11,41 +12,20 @@ import java.net.URI;
 
 import static com.github.t1.problem.ProblemDetail.*;
 import static com.github.t1.problem.WebException.*;
-import static javax.ws.rs.core.Response.Status.*;
 import static javax.ws.rs.core.Response.Status.Family.*;
 
 /** @see WebException */
 @Slf4j
 public class WebExceptionBuilder {
-    private static final String EXCEPTION = "Exception";
-
+    /** Takes status, type, and title from the (cached) {@link ProblemType} */
     public static WebExceptionBuilder from(Class<?> type) {
-        return builderFor(annotatedStatus(type))
-                .type(URI.create(URN_PROBLEM_JAVA_PREFIX + type.getName()))
-                .title(title(type));
-    }
-
-    public static Status annotatedStatus(Class<?> type) {
-        ReturnStatus returnStatus = type.getAnnotation(ReturnStatus.class);
-        return (returnStatus == null) ? BAD_REQUEST : returnStatus.value();
+        ProblemType problemType = ProblemType.of(type);
+        return builderFor(problemType.getStatus())
+                .type(problemType.getType())
+                .title(problemType.getTitle());
     }
 
-    private static String title(Class<?> type) {
-        String name = type.getSimpleName();
-        if (name.endsWith(EXCEPTION))
-            name = name.substring(0, name.length() - EXCEPTION.length());
-        return camelToWords(name);
-    }
-
-    private static String camelToWords(String in) {
-        StringBuilder out = new StringBuilder();
-        for (char c : in.toCharArray()) {
-            if (out.length() > 0 && Character.isUpperCase(c))
-                out.append(' ');
-            out.append(Character.toLowerCase(c));
-        }
-        return out.toString();
-    }
+    public static Status annotatedStatus(Class<?> type) { return ProblemType.of(type).getStatus(); }
 
 
     private final ProblemDetailBuilder entity;
@@ -72,19 +52,69 @@ public class WebExceptionBuilder {
         return this;
     }
 
+    /** Add an extension member to the problem detail, see {@link ProblemDetail#getExtension(String)} */
+    public WebExceptionBuilder extension(String name, String value) {
+        entity.extension(name, value);
+        return this;
+    }
+
+    public WebExceptionBuilder extension(String name, Number value) {
+        entity.extension(name, value);
+        return this;
+    }
+
+    public WebExceptionBuilder extension(String name, boolean value) {
+        entity.extension(name, value);
+        return this;
+    }
+
+    public WebExceptionBuilder extension(String name, JsonValue value) {
+        entity.extension(name, value);
+        return this;
+    }
+
+    /** The sub-problems, e.g. all validation errors of a bulk request, see {@link ProblemDetail#getErrors()} */
+    public WebExceptionBuilder errors(@NonNull ProblemErrors errors) {
+        entity.errors(errors);
+        return this;
+    }
+
+    /** A problem detail of a {@link WebApplicationException} is nested as a cause, compacted by {@link CauseChains} */
     public WebExceptionBuilder causedBy(@NonNull Throwable cause) {
-        if (cause instanceof WebApplicationException)
-            entity.cause(ProblemDetail.from(((WebApplicationException) cause).getResponse()));
+        if (cause instanceof WebApplicationException) {
+            ProblemDetail causeDetail = ProblemDetail.from(((WebApplicationException) cause).getResponse());
+            entity.cause((causeDetail == null) ? null : CauseChains.compact(causeDetail));
+        }
         this.cause = cause;
         return this;
     }
 
-    public WebException build() {
+    public WebException build() { return build(Stackless.isEnabledFor(status)); }
+
+    /**
+     * Build a stackless exception without an {@link ProblemDetail#getInstance() instance} and {@link #causedBy cause},
+     * meant to be created only once, kept in a constant, and thrown over and over again. It returns a new copy of
+     * its response every time, as filters change the headers. Don't add suppressed exceptions to it, e.g. by throwing
+     * it from a try-with-resources block, as they would accumulate.
+     */
+    public WebException buildShared() {
+        if (cause != null)
+            throw new IllegalStateException("a shared exception can't have a cause");
+        entity.instance(null);
+        return build(true, true);
+    }
+
+    private WebException build(boolean stackless) { return build(stackless, false); }
+
+    private WebException build(boolean stackless, boolean shared) {
+        long start = System.nanoTime();
         ProblemDetail detail = buildEntity();
         Response response = buildResponse(detail);
-        return isServerError()
-                ? new WebException(detail.toString(), response, cause)
-                : new WebApplicationApplicationException(detail.toString(), response, cause);
+        WebException exception = isServerError()
+                ? new WebException(null, response, cause, stackless, shared)
+                : new WebApplicationApplicationException(null, response, cause, stackless, shared);
+        Instrumentation.created(detail, start, !stackless);
+        return exception;
     }
 
     ProblemDetail buildEntity() { return entity.build(); }
@@ -0,0 +1,71 @@
+package com.github.t1.problem;
+
+import org.w3c.dom.*;
+
+import javax.json.JsonString;
+import javax.json.JsonValue;
+import javax.xml.parsers.*;
+import java.util.*;
+
+/** Maps {@link Extensions} from and to DOM elements for JAXB */
+class XmlExtensions {
+    private static final DocumentBuilderFactory FACTORY = DocumentBuilderFactory.newInstance();
+
+    static List<Element> toElements(Extensions extensions) {
+        Document document = newDocument();
+        List<Element> elements = new ArrayList<>(extensions.size());
+        for (int i = 0; i < extensions.size(); i++) {
+            if (!isName(extensions.name(i)))
+                continue;
+            Element element = document.createElement(extensions.name(i));
+            element.setTextContent(text(extensions, i));
+            elements.add(element);
+        }
+        return elements;
+    }
+
+    /** String values as text, all others as raw JSON */
+    static String text(Extensions extensions, int i) {
+        JsonValue value = extensions.value(i);
+        return (value instanceof JsonString) ? ((JsonString) value).getString() : extensions.json(i);
+    }
+
+    /** A valid XML 1.0 name without a namespace prefix */
+    static boolean isName(String name) {
+        if (name.isEmpty() || !isNameStart(name.charAt(0)))
+            return false;
+        for (int i = 1; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!isNameStart(c) && !(c == '-' || c == '.' || c >= '0' && c <= '9' || c == 0xB7
+                    || c >= 0x0300 && c <= 0x036F || c >= 0x203F && c <= 0x2040))
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean isNameStart(char c) {
+        return c >= 'A' && c <= 'Z' || c == '_' || c >= 'a' && c <= 'z'
+                || c >= 0xC0 && c <= 0xD6 || c >= 0xD8 && c <= 0xF6 || c >= 0xF8 && c <= 0x2FF
+                || c >= 0x370 && c <= 0x37D || c >= 0x37F && c <= 0x1FFF || c >= 0x200C && c <= 0x200D
+                || c >= 0x2070 && c <= 0x218F || c >= 0x2C00 && c <= 0x2FEF || c >= 0x3001 && c <= 0xD7FF
+                || c >= 0xF900 && c <= 0xFDCF || c >= 0xFDF0 && c <= 0xFFFD || Character.isSurrogate(c);
+    }
+
+    private static Document newDocument() {
+        try {
+            synchronized (FACTORY) {
+                return FACTORY.newDocumentBuilder().newDocument();
+            }
+        } catch (ParserConfigurationException e) {
+            throw new IllegalStateException("can't create DOM document", e);
+        }
+    }
+
+    static Extensions fromElements(List<Element> elements) {
+        Extensions.Builder extensions = Extensions.EMPTY.toBuilder();
+        if (elements != null)
+            for (Element element : elements)
+                extensions.put(element.getTagName(), JsonText.quote(element.getTextContent()));
+        return extensions.build();
+    }
+}
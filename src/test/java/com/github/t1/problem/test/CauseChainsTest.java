@@ -0,0 +1,195 @@
+package com.github.t1.problem.test;
+
+import com.github.t1.problem.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.IOException;
+import java.net.URI;
+
+import static com.github.t1.problem.ProblemDetail.APPLICATION_PROBLEM_JSON_TYPE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static javax.ws.rs.core.Response.Status.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+class CauseChainsTest {
+    @AfterEach void reset() {
+        CauseChains.setMaxDepth(CauseChains.DEFAULT_MAX_DEPTH);
+        CauseChains.setDeduplicate(false);
+        ParseLimits.setMaxCauseDepth(ParseLimits.DEFAULT_MAX_CAUSE_DEPTH);
+    }
+
+    private static String chainJson(String... titles) {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < titles.length; i++)
+            out.append((i == 0) ? "" : ",\"cause\":").append("{\"title\":\"").append(titles[i]).append("\"");
+        for (String ignored : titles)
+            out.append('}');
+        return out.toString();
+    }
+
+    private static ProblemDetail causeOf(String json) {
+        Response response = mock(Response.class);
+        given(response.getStatusInfo()).willReturn(BAD_GATEWAY);
+        given(response.getMediaType()).willReturn(APPLICATION_PROBLEM_JSON_TYPE);
+        given(response.readEntity(InputStream.class)).willReturn(new ByteArrayInputStream(json.getBytes(UTF_8)));
+        WebException exception = WebException.builderFor(BAD_GATEWAY)
+                .causedBy(new WebApplicationException(response))
+                .build();
+        return ((ProblemDetail) exception.getResponse().getEntity()).getCause();
+    }
+
+    private static int depth(ProblemDetail problem) {
+        int depth = 0;
+        for (; problem != null; problem = problem.getCause())
+            depth++;
+        return depth;
+    }
+
+    private static ProblemDetail last(ProblemDetail problem) {
+        while (problem.getCause() != null)
+            problem = problem.getCause();
+        return problem;
+    }
+
+    @Test void shouldKeepShortChain() {
+        ProblemDetail cause = causeOf(chainJson("a", "b", "c"));
+
+        assertThat(depth(cause)).isEqualTo(3);
+        assertThat(last(cause).getTitle()).isEqualTo("c");
+    }
+
+    @Test void shouldElideCausesBeyondMaxDepth() {
+        CauseChains.setMaxDepth(2);
+
+        ProblemDetail cause = causeOf(chainJson("a", "b", "c", "d", "e"));
+
+        assertThat(cause.getTitle()).isEqualTo("a");
+        assertThat(cause.getCause().getTitle()).isEqualTo("b");
+        ProblemDetail tail = cause.getCause().getCause();
+        assertThat(tail.getType()).isEqualTo(CauseChains.ELIDED_TYPE);
+        assertThat(tail.getDetail()).isEqualTo("3 more causes elided");
+        assertThat(tail.getRawExtension(CauseChains.ELIDED_EXTENSION)).isEqualTo("3");
+        assertThat(tail.getCause()).isNull();
+    }
+
+    @Test void shouldNotDeduplicateByDefault() {
+        ProblemDetail cause = causeOf(chainJson("a", "a", "a", "b"));
+
+        assertThat(depth(cause)).isEqualTo(4);
+    }
+
+    @Test void shouldDeduplicateConsecutiveCauses() {
+        CauseChains.setDeduplicate(true);
+
+        ProblemDetail cause = causeOf(chainJson("a", "a", "a", "b", "a"));
+
+        assertThat(cause.getTitle()).isEqualTo("a");
+        assertThat(cause.getCause().getTitle()).isEqualTo("b");
+        assertThat(cause.getCause().getCause().getTitle()).isEqualTo("a");
+        assertThat(depth(cause)).isEqualTo(3);
+    }
+
+    private static ProblemDetail chain(int depth) {
+        ProblemDetail chain = null;
+        for (int i = 0; i < depth; i++)
+            chain = ProblemDetail.builder().title("level " + i).status(BAD_GATEWAY).instance(null).cause(chain).build();
+        return chain;
+    }
+
+    private static String indent(int depth) {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < depth; i++)
+            out.append("  ");
+        return out.toString();
+    }
+
+    @Test void shouldRenderDeepChainWithoutRecursion() {
+        ProblemDetail chain = chain(2_000); // the indentation grows quadratically
+
+        assertThat(chain.toString())
+                .startsWith("title: level 1999\n")
+                .endsWith(indent(1999) + "title: level 0\n" + indent(1999) + "status: 502\n");
+    }
+
+    @Test void shouldWriteAndParseVeryDeepChainWithoutRecursion() throws IOException {
+        int depth = 20_000;
+        ProblemDetail chain = chain(depth);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ProblemDetailJsonProvider()
+                .writeTo(chain, ProblemDetail.class, null, null, APPLICATION_PROBLEM_JSON_TYPE, null, out);
+        ParseLimits.setMaxCauseDepth(depth);
+        ParseLimits.setMaxPayloadSize(10 * out.size());
+        try {
+            ProblemDetail parsed = ProblemDetail.fromJson(out.toString("UTF-8"));
+
+            assertThat(depth(parsed)).isEqualTo(depth);
+            assertThat(last(parsed).getTitle()).isEqualTo("level 0");
+        } finally {
+            ParseLimits.setMaxPayloadSize(ParseLimits.DEFAULT_MAX_PAYLOAD_SIZE);
+        }
+    }
+
+    @Test void shouldKeepTypesInElidedChain() {
+        CauseChains.setMaxDepth(1);
+
+        ProblemDetail cause = causeOf("{\"type\":\"urn:test:a\",\"cause\":{\"type\":\"urn:test:b\"}}");
+
+        assertThat(cause.getType()).isEqualTo(URI.create("urn:test:a"));
+        assertThat(cause.getCause().getDetail()).isEqualTo("1 more cause elided");
+    }
+
+    @Test void shouldCountElidedCausesWhenCompactingCompactedChain() {
+        CauseChains.setMaxDepth(1);
+
+        ProblemDetail cause = causeOf("{\"title\":\"a\",\"cause\":{\"title\":\"b\",\"cause\":"
+                + "{\"type\":\"" + CauseChains.ELIDED_TYPE + "\",\"" + CauseChains.ELIDED_EXTENSION + "\":3}}}");
+
+        assertThat(cause.getTitle()).isEqualTo("a");
+        ProblemDetail tail = cause.getCause();
+        assertThat(tail.getType()).isEqualTo(CauseChains.ELIDED_TYPE);
+        assertThat(tail.getDetail()).isEqualTo("4 more causes elided");
+        assertThat(tail.getRawExtension(CauseChains.ELIDED_EXTENSION)).isEqualTo("4");
+        assertThat(tail.getCause()).isNull();
+    }
+
+    private static String elidedJson(String count) {
+        return "{\"type\":\"" + CauseChains.ELIDED_TYPE + "\",\"" + CauseChains.ELIDED_EXTENSION + "\":" + count + "}";
+    }
+
+    @Test void shouldSaturateElidedCount() {
+        CauseChains.setMaxDepth(1);
+
+        ProblemDetail cause = causeOf("{\"title\":\"a\",\"cause\":{\"title\":\"b\",\"cause\":"
+                + elidedJson(Long.toString(Long.MAX_VALUE)) + "}}");
+
+        assertThat(cause.getCause().getRawExtension(CauseChains.ELIDED_EXTENSION))
+                .isEqualTo(Long.toString(Long.MAX_VALUE));
+    }
+
+    @Test void shouldSaturateHugeElidedCount() {
+        CauseChains.setMaxDepth(1);
+
+        ProblemDetail cause = causeOf("{\"title\":\"a\",\"cause\":" + elidedJson("1" + Long.MAX_VALUE) + "}");
+
+        assertThat(cause.getCause().getRawExtension(CauseChains.ELIDED_EXTENSION))
+                .isEqualTo(Long.toString(Long.MAX_VALUE));
+    }
+
+    @Test void shouldCountNegativeElidedCountAsOne() {
+        CauseChains.setMaxDepth(1);
+
+        ProblemDetail cause = causeOf("{\"title\":\"a\",\"cause\":{\"title\":\"b\",\"cause\":"
+                + elidedJson("-5") + "}}");
+
+        assertThat(cause.getCause().getDetail()).isEqualTo("2 more causes elided");
+    }
+}
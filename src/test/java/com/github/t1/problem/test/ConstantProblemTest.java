@@ -0,0 +1,130 @@
+package com.github.t1.problem.test;
+
+import com.github.t1.problem.*;
+import org.junit.jupiter.api.Test;
+
+import javax.ws.rs.core.Response;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+
+import static com.github.t1.problem.ProblemDetail.*;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static javax.ws.rs.core.Response.Status.*;
+import static org.assertj.core.api.Assertions.*;
+
+class ConstantProblemTest {
+    private static final ProblemTemplate RATE_LIMITED = ProblemTemplate.of(TOO_MANY_REQUESTS,
+            URI.create("urn:problem:rate-limited"), "rate limited");
+    private static final ConstantProblem TRY_LATER = RATE_LIMITED.constant("try again later");
+    private static final ConstantProblem EXTENDED = ConstantProblem.of(ProblemDetail.builder()
+            .type(URI.create("urn:problem:rate-limited"))
+            .status(TOO_MANY_REQUESTS)
+            .detail("try again in 10 seconds")
+            .extension("retryAfter", 10)
+            .build());
+
+    private static ProblemDetail regular(ProblemDetail problem) {
+        ProblemDetail.ProblemDetailBuilder builder = ProblemDetail.builder()
+                .type(problem.getType())
+                .title(problem.getTitle())
+                .status(problem.getStatus())
+                .detail(problem.getDetail())
+                .instance(problem.getInstance());
+        for (String name : problem.getExtensionNames())
+            builder.rawExtension(name, problem.getRawExtension(name));
+        return builder.build();
+    }
+
+    private static String json(ProblemDetail problem) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ProblemDetailJsonProvider()
+                .writeTo(problem, ProblemDetail.class, null, null, APPLICATION_PROBLEM_JSON_TYPE, null, out);
+        return new String(out.toByteArray(), UTF_8);
+    }
+
+    private static String xml(ProblemDetail problem) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ProblemDetailXmlProvider()
+                .writeTo(problem, ProblemDetail.class, null, null, APPLICATION_PROBLEM_XML_TYPE, null, out);
+        return new String(out.toByteArray(), UTF_8);
+    }
+
+    @Test void shouldCreateProblemWithInstance() {
+        ProblemDetail problem = TRY_LATER.problem(URI.create("urn:test:1"));
+
+        assertThat(problem).isEqualTo(ProblemDetail.builder()
+                .type(URI.create("urn:problem:rate-limited"))
+                .title("rate limited")
+                .status(TOO_MANY_REQUESTS)
+                .detail("try again later")
+                .instance(URI.create("urn:test:1"))
+                .build());
+    }
+
+    @Test void shouldShareProblemWithoutInstance() {
+        assertThat(TRY_LATER.problem(null)).isSameAs(TRY_LATER.getProblem());
+        assertThat(TRY_LATER.getProblem().getInstance()).isNull();
+    }
+
+    @Test void shouldGenerateInstance() {
+        assertThat(TRY_LATER.problem().getInstance()).isNotNull().isNotEqualTo(TRY_LATER.problem().getInstance());
+    }
+
+    @Test void shouldWriteJsonLikeRegularProblem() throws IOException {
+        ProblemDetail problem = TRY_LATER.problem(URI.create("urn:test:1"));
+
+        assertThat(json(problem)).isEqualTo(json(regular(problem))).isEqualTo("{"
+                + "\"type\":\"urn:problem:rate-limited\","
+                + "\"title\":\"rate limited\","
+                + "\"status\":429,"
+                + "\"detail\":\"try again later\","
+                + "\"instance\":\"urn:test:1\"}");
+    }
+
+    @Test void shouldWriteJsonWithoutInstance() throws IOException {
+        ProblemDetail problem = TRY_LATER.problem(null);
+
+        assertThat(json(problem)).isEqualTo(json(regular(problem)));
+    }
+
+    @Test void shouldWriteJsonWithExtensions() throws IOException {
+        ProblemDetail problem = EXTENDED.problem(URI.create("urn:test:2"));
+
+        assertThat(json(problem)).isEqualTo(json(regular(problem))).endsWith(",\"retryAfter\":10}");
+    }
+
+    @Test void shouldWriteXmlLikeRegularProblem() throws IOException {
+        ProblemDetail problem = TRY_LATER.problem(URI.create("urn:test:1?a=b&c=d"));
+
+        assertThat(xml(problem)).isEqualTo(xml(regular(problem)))
+                .contains("<instance>urn:test:1?a=b&amp;c=d</instance>");
+    }
+
+    @Test void shouldWriteXmlWithoutInstance() throws IOException {
+        ProblemDetail problem = EXTENDED.problem(null);
+
+        assertThat(xml(problem)).isEqualTo(xml(regular(problem))).doesNotContain("instance");
+    }
+
+    @Test void shouldCreateResponse() {
+        Response response = TRY_LATER.response();
+
+        assertThat(response.getStatus()).isEqualTo(429);
+        assertThat(response.getMediaType()).isEqualTo(APPLICATION_PROBLEM_JSON_TYPE);
+        assertThat(((ProblemDetail) response.getEntity()).getInstance()).isNotNull();
+    }
+
+    @Test void shouldCreateException() {
+        WebException exception = TRY_LATER.exception(null);
+
+        assertThat(exception).isInstanceOf(WebApplicationApplicationException.class);
+        assertThat(exception.getResponse().getEntity()).isSameAs(TRY_LATER.getProblem());
+    }
+
+    @Test void shouldRequireStatus() {
+        Throwable thrown = catchThrowable(() -> ConstantProblem.of(ProblemDetail.builder().title("no status").build()));
+
+        assertThat(thrown).isInstanceOf(IllegalArgumentException.class);
+    }
+}
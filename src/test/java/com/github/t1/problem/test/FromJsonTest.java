@@ -0,0 +1,259 @@
+package com.github.t1.problem.test;
+
+import com.github.t1.problem.*;
+import org.junit.jupiter.api.*;
+
+import javax.json.JsonException;
+import javax.json.JsonString;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.io.*;
+import java.net.URI;
+import java.nio.ByteBuffer;
+
+import static com.github.t1.problem.ProblemDetail.*;
+import static java.nio.charset.StandardCharsets.*;
+import static javax.ws.rs.core.Response.Status.CONFLICT;
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+class FromJsonTest {
+    private static final String JSON = ""
+            + "{"
+            + "\"type\":\"urn:problem:foo-type\","
+            + "\"title\":\"foo-title\","
+            + "\"status\":409,"
+            + "\"unknown\":{\"deeply\":[{\"nested\":[[[]]]}]},"
+            + "\"detail\":\"foo-detail\","
+            + "\"instance\":\"foo-instance\""
+            + "}";
+    private static final ProblemDetail PROBLEM = ProblemDetail.builder()
+            .type(URI.create("urn:problem:foo-type"))
+            .title("foo-title")
+            .status(CONFLICT)
+            .detail("foo-detail")
+            .instance(URI.create("foo-instance"))
+            .rawExtension("unknown", "{\"deeply\":[{\"nested\":[[[]]]}]}")
+            .build();
+
+    @AfterEach void resetLimits() {
+        ParseLimits.setMaxCauseDepth(ParseLimits.DEFAULT_MAX_CAUSE_DEPTH);
+        ParseLimits.setMaxPayloadSize(ParseLimits.DEFAULT_MAX_PAYLOAD_SIZE);
+        ParseLimits.setMaxExtensions(ParseLimits.DEFAULT_MAX_EXTENSIONS);
+    }
+
+    private static String nested(int depth) {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < depth; i++)
+            out.append("{\"title\":\"level-").append(i).append("\",\"cause\":");
+        out.append("{\"title\":\"level-").append(depth).append("\"}");
+        for (int i = 0; i < depth; i++)
+            out.append("}");
+        return out.toString();
+    }
+
+    @Test void shouldParseString() { assertThat(ProblemDetail.fromJson(JSON)).isEqualTo(PROBLEM); }
+
+    @Test void shouldParseReader() { assertThat(ProblemDetail.fromJson(new StringReader(JSON))).isEqualTo(PROBLEM); }
+
+    @Test void shouldParseInputStream() {
+        assertThat(ProblemDetail.fromJson(new ByteArrayInputStream(JSON.getBytes(UTF_8)))).isEqualTo(PROBLEM);
+    }
+
+    @Test void shouldNotCloseInputStream() {
+        ClosingInputStream in = new ClosingInputStream(JSON.getBytes(UTF_8));
+
+        assertThat(ProblemDetail.fromJson(in)).isEqualTo(PROBLEM);
+        assertThat(in.closed).isFalse();
+    }
+
+    @Test void shouldNotCloseReader() {
+        ClosingReader in = new ClosingReader(JSON);
+
+        assertThat(ProblemDetail.fromJson(in)).isEqualTo(PROBLEM);
+        assertThat(in.closed).isFalse();
+    }
+
+    @Test void shouldNotCloseEntityStream() throws IOException {
+        ClosingInputStream in = new ClosingInputStream(JSON.getBytes(UTF_8));
+
+        ProblemDetail problem = new ProblemDetailJsonProvider()
+                .readFrom(ProblemDetail.class, null, null, APPLICATION_PROBLEM_JSON_TYPE, null, in);
+
+        assertThat(problem).isEqualTo(PROBLEM);
+        assertThat(in.closed).isFalse();
+    }
+
+    private static class ClosingInputStream extends ByteArrayInputStream {
+        private boolean closed;
+
+        ClosingInputStream(byte[] bytes) { super(bytes); }
+
+        @Override public void close() { closed = true; }
+    }
+
+    private static class ClosingReader extends StringReader {
+        private boolean closed;
+
+        ClosingReader(String string) { super(string); }
+
+        @Override public void close() { closed = true; }
+    }
+
+    @Test void shouldParseByteArray() { assertThat(ProblemDetail.fromJson(JSON.getBytes(UTF_8))).isEqualTo(PROBLEM); }
+
+    @Test void shouldParseByteBufferWithoutMovingPosition() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(JSON.length() + 2);
+        buffer.put((byte) 'x').put(JSON.getBytes(UTF_8)).put((byte) 'y').flip();
+        buffer.position(1).limit(JSON.length() + 1);
+
+        assertThat(ProblemDetail.fromJson(buffer)).isEqualTo(PROBLEM);
+        assertThat(buffer.position()).isEqualTo(1);
+    }
+
+    @Test void shouldParseNestedCausesUpToTheMaxDepth() {
+        ParseLimits.setMaxCauseDepth(3);
+
+        ProblemDetail problem = ProblemDetail.fromJson(nested(3));
+
+        assertThat(problem.getCause().getCause().getCause().getTitle()).isEqualTo("level-3");
+    }
+
+    @Test void shouldFailToParseNestedCausesBeyondTheMaxDepth() {
+        ParseLimits.setMaxCauseDepth(3);
+
+        Throwable thrown = catchThrowable(() -> ProblemDetail.fromJson(nested(4)));
+
+        assertThat(thrown).isInstanceOf(JsonException.class).hasMessageContaining("max cause depth of 3");
+    }
+
+    @Test void shouldFailToParseVeryDeeplyNestedCausesWithoutStackOverflow() {
+        Throwable thrown = catchThrowable(() -> ProblemDetail.fromJson(nested(100_000)));
+
+        assertThat(thrown).isInstanceOf(JsonException.class);
+    }
+
+    private static String extensions(int count) {
+        StringBuilder out = new StringBuilder("{\"title\":\"many\"");
+        for (int i = 0; i < count; i++)
+            out.append(",\"x").append(i).append("\":").append(i);
+        return out.append('}').toString();
+    }
+
+    @Test void shouldParseManyExtensionsInOrder() {
+        ParseLimits.setMaxExtensions(100_000);
+        ParseLimits.setMaxPayloadSize(10 * 1024 * 1024);
+
+        ProblemDetail problem = ProblemDetail.fromJson(extensions(100_000));
+
+        assertThat(problem.getExtensionNames()).hasSize(100_000).startsWith("x0", "x1").endsWith("x99999");
+        assertThat(problem.getRawExtension("x99999")).isEqualTo("99999");
+    }
+
+    @Test void shouldCountReplacedExtensionOnlyOnce() {
+        ParseLimits.setMaxExtensions(2);
+
+        ProblemDetail problem = ProblemDetail.fromJson("{\"a\":1,\"b\":2,\"a\":3}");
+
+        assertThat(problem.getExtensionNames()).containsExactly("a", "b");
+        assertThat(problem.getRawExtension("a")).isEqualTo("3");
+    }
+
+    @Test void shouldFailToParseExtensionsBeyondTheMax() {
+        ParseLimits.setMaxExtensions(3);
+
+        Throwable thrown = catchThrowable(() -> ProblemDetail.fromJson(extensions(4)));
+
+        assertThat(thrown).isInstanceOf(JsonException.class).hasMessageContaining("max extensions of 3");
+    }
+
+    @Test void shouldFailToParseStringBeyondTheMaxPayloadSize() {
+        ParseLimits.setMaxPayloadSize(JSON.length() - 1);
+
+        Throwable thrown = catchThrowable(() -> ProblemDetail.fromJson(JSON));
+
+        assertThat(thrown).isInstanceOf(JsonException.class).hasMessageContaining("max payload size");
+    }
+
+    @Test void shouldFailToParseStreamBeyondTheMaxPayloadSize() {
+        ParseLimits.setMaxPayloadSize(16);
+        InputStream endless = new InputStream() {
+            private boolean first = true;
+
+            @Override public int read() {
+                if (first) {
+                    first = false;
+                    return '[';
+                }
+                return ' ';
+            }
+        };
+
+        Throwable thrown = catchThrowable(() -> ProblemDetail.fromJson(endless));
+
+        assertThat(thrown).isInstanceOf(JsonException.class).hasMessageContaining("max payload size");
+    }
+
+
+    private static Response response(MediaType mediaType, byte[] entity) {
+        Response response = mock(Response.class);
+        given(response.getMediaType()).willReturn(mediaType);
+        given(response.readEntity(InputStream.class)).willReturn(new ByteArrayInputStream(entity));
+        return response;
+    }
+
+    private static Class<?> anyClass() { return any(); }
+
+    @Test void shouldReadJsonResponseFromStream() {
+        Response response = response(APPLICATION_PROBLEM_JSON_TYPE, JSON.getBytes(UTF_8));
+
+        assertThat(ProblemDetail.from(response)).isEqualTo(PROBLEM);
+        then(response).should(never()).readEntity(String.class);
+    }
+
+    @Test void shouldReadJsonResponseWithCharset() {
+        MediaType utf16 = APPLICATION_PROBLEM_JSON_TYPE.withCharset("UTF-16BE");
+
+        assertThat(ProblemDetail.from(response(utf16, JSON.getBytes(UTF_16BE)))).isEqualTo(PROBLEM);
+    }
+
+    @Test void shouldReadXmlResponse() throws IOException {
+        ByteArrayOutputStream xml = new ByteArrayOutputStream();
+        new ProblemDetailXmlProvider().writeTo(PROBLEM, ProblemDetail.class, null, null, null, null, xml);
+
+        ProblemDetail problem = ProblemDetail.from(response(APPLICATION_PROBLEM_XML_TYPE, xml.toByteArray()));
+
+        assertThat(problem.getType()).isEqualTo(PROBLEM.getType());
+        assertThat(problem.getInstance()).isEqualTo(PROBLEM.getInstance());
+        assertThat(((JsonString) problem.getExtension("unknown")).getString())
+                .isEqualTo(PROBLEM.getRawExtension("unknown"));
+    }
+
+    @Test void shouldReadBinaryResponse() throws IOException {
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        new ProblemDetailBinaryProvider().writeTo(PROBLEM, ProblemDetail.class, null, null, null, null, binary);
+
+        assertThat(ProblemDetail.from(response(APPLICATION_PROBLEM_BINARY_TYPE, binary.toByteArray())))
+                .isEqualTo(PROBLEM);
+    }
+
+    @Test void shouldNotReadNonProblemResponse() {
+        Response response = response(MediaType.TEXT_HTML_TYPE, "<html/>".getBytes(UTF_8));
+
+        assertThat(ProblemDetail.from(response)).isNull();
+        then(response).should(never()).readEntity(anyClass());
+    }
+
+    @Test void shouldNotReadResponseWithoutContentType() {
+        Response response = response(null, JSON.getBytes(UTF_8));
+
+        assertThat(ProblemDetail.from(response)).isNull();
+        then(response).should(never()).readEntity(anyClass());
+    }
+
+    @Test void shouldReturnNullForUnreadableProblemResponse() {
+        Response response = response(APPLICATION_PROBLEM_JSON_TYPE, "{\"status\":".getBytes(UTF_8));
+
+        assertThat(ProblemDetail.from(response)).isNull();
+    }
+}
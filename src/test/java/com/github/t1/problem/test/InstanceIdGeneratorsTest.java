@@ -0,0 +1,101 @@
+package com.github.t1.problem.test;
+
+import com.github.t1.problem.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.t1.problem.ProblemDetail.URN_PROBLEM_INSTANCE_PREFIX;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InstanceIdGeneratorsTest {
+    private final InstanceIdGenerator originalDefault = InstanceIdGenerators.getDefault();
+
+    @AfterEach void resetDefault() { InstanceIdGenerators.setDefault(originalDefault); }
+
+    private UUID uuid(URI uri) {
+        assertThat(uri.toString()).startsWith(URN_PROBLEM_INSTANCE_PREFIX);
+        String string = uri.toString().substring(URN_PROBLEM_INSTANCE_PREFIX.length());
+        UUID uuid = UUID.fromString(string);
+        assertThat(uuid.toString()).isEqualTo(string);
+        assertThat(uuid.variant()).isEqualTo(2);
+        return uuid;
+    }
+
+    @Test void shouldGenerateRandomUuid() {
+        UUID uuid = uuid(InstanceIdGenerators.randomUuid().next());
+
+        assertThat(uuid.version()).isEqualTo(4);
+    }
+
+    @Test void shouldGenerateThreadLocalRandomUuid() {
+        InstanceIdGenerator generator = InstanceIdGenerators.threadLocalRandom();
+
+        UUID uuid = uuid(generator.next());
+
+        assertThat(uuid.version()).isEqualTo(4);
+        assertThat(uuid(generator.next())).isNotEqualTo(uuid);
+    }
+
+    @Test void shouldGenerateTimeOrderedUuid() throws InterruptedException {
+        InstanceIdGenerator generator = InstanceIdGenerators.timeOrdered();
+        long before = System.currentTimeMillis();
+
+        UUID first = uuid(generator.next());
+        Thread.sleep(2);
+        UUID second = uuid(generator.next());
+
+        assertThat(first.version()).isEqualTo(7);
+        assertThat(first.getMostSignificantBits() >>> 16).isBetween(before, System.currentTimeMillis());
+        assertThat(first.toString()).isLessThan(second.toString());
+    }
+
+    @Test void shouldGenerateCounter() {
+        InstanceIdGenerator generator = InstanceIdGenerators.counter();
+
+        String first = generator.next().toString();
+        String second = generator.next().toString();
+
+        assertThat(first).matches(URN_PROBLEM_INSTANCE_PREFIX + "[0-9a-f]+-0");
+        assertThat(second).isEqualTo(first.substring(0, first.length() - 1) + "1");
+    }
+
+    @Test void shouldNotReuseNumbersWhenCountersInterleave() {
+        InstanceIdGenerator one = InstanceIdGenerators.counter();
+        InstanceIdGenerator two = InstanceIdGenerators.counter();
+        Set<URI> ones = new HashSet<>();
+        Set<URI> twos = new HashSet<>();
+
+        for (int i = 0; i < 3000; i++) {
+            ones.add(one.next());
+            twos.add(two.next());
+        }
+
+        assertThat(ones).hasSize(3000);
+        assertThat(twos).hasSize(3000);
+    }
+
+    @Test void shouldUseDefaultGenerator() {
+        InstanceIdGenerators.setDefault(() -> URI.create("urn:test:instance"));
+
+        assertThat(ProblemDetail.builder().build().getInstance()).hasToString("urn:test:instance");
+    }
+
+    @Test void shouldNotGenerateExplicitInstance() {
+        AtomicInteger calls = new AtomicInteger();
+        InstanceIdGenerators.setDefault(() -> {
+            calls.incrementAndGet();
+            return URI.create("urn:test:instance");
+        });
+
+        ProblemDetail withInstance = ProblemDetail.builder().instance(URI.create("urn:explicit")).build();
+        ProblemDetail withoutInstance = ProblemDetail.builder().instance(null).build();
+
+        assertThat(withInstance.getInstance()).hasToString("urn:explicit");
+        assertThat(withoutInstance.getInstance()).isNull();
+        assertThat(calls).hasValue(0);
+    }
+}
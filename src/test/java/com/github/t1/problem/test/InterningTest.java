@@ -0,0 +1,59 @@
+package com.github.t1.problem.test;
+
+import com.github.t1.problem.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class InterningTest {
+    private static final String JSON = "{\"type\":\"urn:test:interned\",\"title\":\"interned title\",\"status\":502}";
+
+    @AfterEach void disable() { Interning.setMaxSize(0); }
+
+    @Test void shouldNotInternByDefault() {
+        ProblemDetail first = ProblemDetail.fromJson(JSON);
+        ProblemDetail second = ProblemDetail.fromJson(JSON);
+
+        assertThat(Interning.types()).isNull();
+        assertThat(second.getType()).isEqualTo(first.getType()).isNotSameAs(first.getType());
+        assertThat(second.getTitle()).isEqualTo(first.getTitle()).isNotSameAs(first.getTitle());
+    }
+
+    @Test void shouldInternParsedTypesAndTitles() {
+        Interning.setMaxSize(16);
+
+        ProblemDetail first = ProblemDetail.fromJson(JSON);
+        ProblemDetail second = ProblemDetail.fromJson(JSON);
+
+        assertThat(second.getType()).isSameAs(first.getType());
+        assertThat(second.getTitle()).isSameAs(first.getTitle());
+        assertThat(Interning.types().getMisses()).isEqualTo(1);
+        assertThat(Interning.types().getHits()).isEqualTo(1);
+        assertThat(Interning.titles().getHits()).isEqualTo(1);
+    }
+
+    @Test void shouldStayBounded() {
+        Interning.setMaxSize(4);
+
+        for (int i = 0; i < 100; i++)
+            ProblemDetail.fromJson("{\"type\":\"urn:test:" + i + "\"}");
+
+        assertThat(Interning.types().size()).isLessThanOrEqualTo(4);
+        assertThat(Interning.types().getMisses()).isEqualTo(100);
+    }
+
+    @Test void shouldKeepRecentlyUsedEntries() {
+        Interning.setMaxSize(4);
+        ProblemDetail hot = ProblemDetail.fromJson(JSON);
+
+        for (int i = 0; i < 100; i++) {
+            ProblemDetail.fromJson("{\"type\":\"urn:test:" + i + "\"}");
+            assertThat(ProblemDetail.fromJson(JSON).getType()).isSameAs(hot.getType());
+        }
+    }
+
+    @Test void shouldRejectNegativeSize() {
+        assertThatThrownBy(() -> Interning.setMaxSize(-1)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,258 @@
+package com.github.t1.problem.test;
+
+import com.github.t1.problem.*;
+import org.junit.jupiter.api.Test;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.core.*;
+import java.io.*;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static com.github.t1.problem.ProblemDetail.*;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.toList;
+import static javax.ws.rs.core.Response.Status.*;
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+class ProblemDetailBinaryProviderTest {
+    private static final URI TYPE = URI.create("urn:problem:foo-type");
+    private static final ProblemDetail DOUBLY_DETAIL = ProblemDetail
+            .builder()
+            .type(TYPE)
+            .title("foo-title")
+            .status(CONFLICT)
+            .detail("foo-detail ä€😀")
+            .instance(URI.create("foo-instance"))
+            .extension("traceId", "abc")
+            .extension("accounts", 3)
+            .cause(ProblemDetail
+                    .builder()
+                    .title("cause-title")
+                    .instance(URI.create("cause-instance"))
+                    .cause(ProblemDetail
+                            .builder()
+                            .type(URI.create("urn:problem:bar-type"))
+                            .status(502)
+                            .instance(null)
+                            .build())
+                    .build())
+            .build();
+    private static final ProblemDictionary DICTIONARY = ProblemDictionary.builder()
+            .type(TYPE).title("foo-title").title("cause-title").build();
+
+    private static byte[] write(ProblemDetail problem, ProblemDictionary dictionary) throws IOException {
+        ProblemDetailBinaryProvider provider = new ProblemDetailBinaryProvider(dictionary);
+        assertThat(provider.isWriteable(ProblemDetail.class, null, null, APPLICATION_PROBLEM_BINARY_TYPE)).isTrue();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        provider.writeTo(problem, ProblemDetail.class, null, null, APPLICATION_PROBLEM_BINARY_TYPE, null, out);
+        return out.toByteArray();
+    }
+
+    private static ProblemDetail read(byte[] bytes, ProblemDictionary dictionary) throws IOException {
+        ProblemDetailBinaryProvider provider = new ProblemDetailBinaryProvider(dictionary);
+        assertThat(provider.isReadable(ProblemDetail.class, null, null, APPLICATION_PROBLEM_BINARY_TYPE)).isTrue();
+        return provider.readFrom(ProblemDetail.class, null, null, APPLICATION_PROBLEM_BINARY_TYPE, null,
+                new ByteArrayInputStream(bytes));
+    }
+
+    @Test void shouldRoundTripEmpty() throws IOException {
+        ProblemDetail problem = ProblemDetail.builder().instance(null).build();
+
+        byte[] bytes = write(problem, ProblemDictionary.EMPTY);
+
+        assertThat(bytes).containsExactly('P', 1, 0, 0, 0);
+        assertThat(read(bytes, ProblemDictionary.EMPTY)).isEqualTo(problem);
+    }
+
+    @Test void shouldRoundTripDoublyNestedWithoutDictionary() throws IOException {
+        byte[] bytes = write(DOUBLY_DETAIL, ProblemDictionary.EMPTY);
+
+        ProblemDetail read = read(bytes, ProblemDictionary.EMPTY);
+
+        assertThat(read).isEqualTo(DOUBLY_DETAIL);
+        assertThat(read.getRawExtension("accounts")).isEqualTo("3");
+    }
+
+    @Test void shouldRoundTripDoublyNestedWithDictionary() throws IOException {
+        byte[] bytes = write(DOUBLY_DETAIL, DICTIONARY);
+
+        ProblemDetail read = read(bytes, DICTIONARY);
+
+        assertThat(read).isEqualTo(DOUBLY_DETAIL);
+        assertThat(read.getType()).isSameAs(DICTIONARY.getTypes().get(0));
+        assertThat(bytes.length).isLessThan(write(DOUBLY_DETAIL, ProblemDictionary.EMPTY).length - 30);
+    }
+
+    @Test void shouldBeSmallerThanJson() throws IOException {
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        new ProblemDetailJsonProvider().writeTo(DOUBLY_DETAIL, ProblemDetail.class, null, null,
+                APPLICATION_PROBLEM_JSON_TYPE, null, json);
+
+        assertThat(write(DOUBLY_DETAIL, ProblemDictionary.EMPTY).length).isLessThan(json.size() * 3 / 4);
+    }
+
+    @Test void shouldReadWithAppendedDictionary() throws IOException {
+        ProblemDictionary appended = ProblemDictionary.builder()
+                .type(TYPE).type(URI.create("urn:problem:new-type"))
+                .title("foo-title").title("cause-title").title("new-title")
+                .build();
+
+        assertThat(read(write(DOUBLY_DETAIL, DICTIONARY), appended)).isEqualTo(DOUBLY_DETAIL);
+    }
+
+    @Test void shouldReadWithoutDictionaryIntoDictionaryReader() throws IOException {
+        assertThat(read(write(DOUBLY_DETAIL, ProblemDictionary.EMPTY), DICTIONARY)).isEqualTo(DOUBLY_DETAIL);
+    }
+
+    @Test void shouldFailToReadWithDifferentDictionary() {
+        ProblemDictionary reordered = ProblemDictionary.builder()
+                .type(TYPE).title("cause-title").title("foo-title").build();
+
+        Throwable thrown = catchThrowable(() -> read(write(DOUBLY_DETAIL, DICTIONARY), reordered));
+
+        assertThat(thrown).isInstanceOf(IOException.class).hasMessageContaining("different dictionary");
+    }
+
+    @Test void shouldFailToReadWithoutDictionary() {
+        Throwable thrown = catchThrowable(() -> read(write(DOUBLY_DETAIL, DICTIONARY), ProblemDictionary.EMPTY));
+
+        assertThat(thrown).isInstanceOf(IOException.class).hasMessageContaining("different dictionary");
+    }
+
+    @Test void shouldRejectDuplicateDictionaryEntries() {
+        Throwable thrown = catchThrowable(() -> ProblemDictionary.builder().title("a").title("a").build());
+
+        assertThat(thrown).isInstanceOf(IllegalArgumentException.class).hasMessage("duplicate title a");
+    }
+
+    @Test void shouldFailToReadEmptyBody() {
+        Throwable thrown = catchThrowable(() -> read(new byte[0], ProblemDictionary.EMPTY));
+
+        assertThat(thrown).isInstanceOf(NoContentException.class);
+    }
+
+    @Test void shouldFailToReadOtherFormat() {
+        Throwable thrown = catchThrowable(() -> read("{}".getBytes(), ProblemDictionary.EMPTY));
+
+        assertThat(thrown).isInstanceOf(IOException.class).hasMessageContaining("not a version 1");
+    }
+
+    @Test void shouldFailToReadTruncated() throws IOException {
+        byte[] bytes = write(DOUBLY_DETAIL, ProblemDictionary.EMPTY);
+
+        Throwable thrown = catchThrowable(() -> read(Arrays.copyOf(bytes, bytes.length - 1), ProblemDictionary.EMPTY));
+
+        assertThat(thrown).isInstanceOf(EOFException.class);
+    }
+
+    /** A problem with only one extension member, as a peer might send it */
+    private static byte[] extension(String name, String json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write('P');
+        out.write(1);
+        out.write(0);
+        out.write(0);
+        out.write(1 << 5);
+        out.write(1);
+        for (String string : new String[]{name, json}) {
+            byte[] bytes = string.getBytes(UTF_8);
+            out.write(bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+        return out.toByteArray();
+    }
+
+    @Test void shouldReadExtensionAsCompactJson() throws IOException {
+        ProblemDetail problem = read(extension("foo", "{ \"bar\" : [1, true] }"), ProblemDictionary.EMPTY);
+
+        assertThat(problem.getRawExtension("foo")).isEqualTo("{\"bar\":[1,true]}");
+    }
+
+    @Test void shouldRejectExtensionInjectingMembers() {
+        Throwable thrown = catchThrowable(() -> read(extension("foo", "1,\"status\":200,\"x\":0"),
+                ProblemDictionary.EMPTY));
+
+        assertThat(thrown).isInstanceOf(IOException.class).hasMessageContaining("invalid extension 'foo'");
+    }
+
+    @Test void shouldRejectExtensionWithSeveralValues() {
+        Throwable thrown = catchThrowable(() -> read(extension("foo", "1,2"), ProblemDictionary.EMPTY));
+
+        assertThat(thrown).isInstanceOf(IOException.class).hasMessageContaining("invalid extension 'foo'");
+    }
+
+    @Test void shouldRejectExtensionNamedLikeStandardField() {
+        Throwable thrown = catchThrowable(() -> read(extension("title", "\"foo\""), ProblemDictionary.EMPTY));
+
+        assertThat(thrown).isInstanceOf(IOException.class).hasMessageContaining("invalid extension 'title'");
+    }
+
+    @Test void shouldLimitCauseDepth() throws IOException {
+        byte[] bytes = write(DOUBLY_DETAIL, ProblemDictionary.EMPTY);
+        ParseLimits.setMaxCauseDepth(1);
+        try {
+            Throwable thrown = catchThrowable(() -> read(bytes, ProblemDictionary.EMPTY));
+
+            assertThat(thrown).isInstanceOf(IOException.class).hasMessageContaining("max cause depth");
+        } finally {
+            ParseLimits.setMaxCauseDepth(ParseLimits.DEFAULT_MAX_CAUSE_DEPTH);
+        }
+    }
+
+    @Test void shouldLimitPayloadSize() throws IOException {
+        byte[] bytes = write(ProblemDetail.builder().detail(String.join("", Collections.nCopies(2000, "x")))
+                .instance(null).build(), ProblemDictionary.EMPTY);
+        ParseLimits.setMaxPayloadSize(1000);
+        try {
+            Throwable thrown = catchThrowable(() -> read(bytes, ProblemDictionary.EMPTY));
+
+            assertThat(thrown).isInstanceOf(IOException.class).hasMessageContaining("max payload size");
+        } finally {
+            ParseLimits.setMaxPayloadSize(ParseLimits.DEFAULT_MAX_PAYLOAD_SIZE);
+        }
+    }
+
+
+    private final ContainerRequestContext request = mock(ContainerRequestContext.class);
+    private final ContainerResponseContext response = mock(ContainerResponseContext.class);
+    private final MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+
+    private MultivaluedMap<String, Object> negotiate(String... accept) {
+        given(request.getAcceptableMediaTypes())
+                .willReturn(Arrays.stream(accept).map(MediaType::valueOf).collect(toList()));
+        given(response.getEntity()).willReturn(DOUBLY_DETAIL);
+        given(response.getMediaType()).willReturn(APPLICATION_PROBLEM_JSON_TYPE);
+        given(response.getHeaders()).willReturn(headers);
+
+        new ProblemNegotiationFilter().filter(request, response);
+
+        return headers;
+    }
+
+    @Test void shouldNegotiateBinary() {
+        assertThat(negotiate(APPLICATION_PROBLEM_BINARY, APPLICATION_PROBLEM_JSON))
+                .containsEntry(HttpHeaders.CONTENT_TYPE, Collections.singletonList(APPLICATION_PROBLEM_BINARY_TYPE))
+                .containsEntry(HttpHeaders.VARY, Collections.singletonList(HttpHeaders.ACCEPT));
+    }
+
+    @Test void shouldFallBackToJsonWhenPreferred() {
+        assertThat(negotiate(APPLICATION_PROBLEM_JSON, APPLICATION_PROBLEM_BINARY))
+                .doesNotContainKey(HttpHeaders.CONTENT_TYPE);
+    }
+
+    @Test void shouldFallBackToJsonForWildcards() {
+        assertThat(negotiate("application/*", "*/*")).doesNotContainKey(HttpHeaders.CONTENT_TYPE);
+    }
+
+    @Test void shouldNotNegotiateOtherEntities() {
+        given(response.getEntity()).willReturn("foo");
+
+        new ProblemNegotiationFilter().filter(request, response);
+
+        assertThat(headers).isEmpty();
+    }
+}
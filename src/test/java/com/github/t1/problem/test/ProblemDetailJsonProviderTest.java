@@ -0,0 +1,141 @@
+package com.github.t1.problem.test;
+
+import com.github.t1.problem.*;
+import org.junit.jupiter.api.Test;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.NoContentException;
+import java.io.*;
+import java.net.URI;
+
+import static com.github.t1.problem.ProblemDetail.APPLICATION_PROBLEM_JSON_TYPE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static javax.ws.rs.core.Response.Status.CONFLICT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class ProblemDetailJsonProviderTest {
+    private static final String DOUBLY_DETAIL_JSON = ""
+            + "{"
+            + "\"type\":\"urn:problem:foo-type\","
+            + "\"title\":\"foo-title\","
+            + "\"status\":409,"
+            + "\"detail\":\"foo-detail\","
+            + "\"instance\":\"foo-instance\","
+            + "\"cause\":{"
+            + /**/"\"title\":\"cause-title\","
+            + /**/"\"instance\":\"cause-instance\","
+            + /**/"\"cause\":{"
+            + /*    */"\"title\":\"doubly-title\","
+            + /*    */"\"instance\":\"doubly-instance\""
+            + /*    */"}"
+            + /**/"}"
+            + "}";
+    private static final ProblemDetail DOUBLY_DETAIL = ProblemDetail
+            .builder()
+            .type(URI.create("urn:problem:foo-type"))
+            .title("foo-title")
+            .status(CONFLICT)
+            .detail("foo-detail")
+            .instance(URI.create("foo-instance"))
+            .cause(ProblemDetail
+                    .builder()
+                    .title("cause-title")
+                    .instance(URI.create("cause-instance"))
+                    .cause(ProblemDetail
+                            .builder()
+                            .title("doubly-title")
+                            .instance(URI.create("doubly-instance"))
+                            .build())
+                    .build())
+            .build();
+
+    private final ProblemDetailJsonProvider provider = new ProblemDetailJsonProvider();
+
+    private String write(ProblemDetail problem) throws IOException {
+        assertThat(provider.isWriteable(ProblemDetail.class, null, null, APPLICATION_PROBLEM_JSON_TYPE)).isTrue();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        provider.writeTo(problem, ProblemDetail.class, null, null, APPLICATION_PROBLEM_JSON_TYPE, null, out);
+        return new String(out.toByteArray(), UTF_8);
+    }
+
+    private ProblemDetail read(String json) throws IOException {
+        assertThat(provider.isReadable(ProblemDetail.class, null, null, APPLICATION_PROBLEM_JSON_TYPE)).isTrue();
+        return provider.readFrom(ProblemDetail.class, null, null, APPLICATION_PROBLEM_JSON_TYPE, null,
+                new ByteArrayInputStream(json.getBytes(UTF_8)));
+    }
+
+    @Test void shouldWriteEmpty() throws IOException {
+        assertThat(write(ProblemDetail.builder().instance(null).build())).isEqualTo("{}");
+    }
+
+    @Test void shouldReplaceOtherCharsetWithUtf8() throws IOException {
+        MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+        MediaType latin1 = APPLICATION_PROBLEM_JSON_TYPE.withCharset("ISO-8859-1");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        provider.writeTo(ProblemDetail.builder().detail("\u00e4").instance(null).build(), ProblemDetail.class, null,
+                null, latin1, headers, out);
+
+        assertThat(headers.getFirst(HttpHeaders.CONTENT_TYPE)).isEqualTo(latin1.withCharset("UTF-8"));
+        assertThat(new String(out.toByteArray(), UTF_8)).isEqualTo("{\"detail\":\"\u00e4\"}");
+    }
+
+    @Test void shouldWriteDoublyNested() throws IOException {
+        assertThat(write(DOUBLY_DETAIL)).isEqualTo(DOUBLY_DETAIL_JSON);
+    }
+
+    @Test void shouldWriteEscapedStrings() throws IOException {
+        ProblemDetail problem = ProblemDetail.builder()
+                .detail("\"quoted\" \\ back\nslash\t\u0001 \u00e4\u20ac\ud83d\ude00")
+                .instance(URI.create("foo-instance"))
+                .build();
+
+        String json = write(problem);
+
+        assertThat(json).isEqualTo("{\"detail\":\"\\\"quoted\\\" \\\\ back\\nslash\\t\\u0001 "
+                + "\u00e4\u20ac\ud83d\ude00\",\"instance\":\"foo-instance\"}");
+        assertThat(read(json)).isEqualTo(problem);
+    }
+
+    @Test void shouldReadDoublyNested() throws IOException {
+        assertThat(read(DOUBLY_DETAIL_JSON)).isEqualTo(DOUBLY_DETAIL);
+    }
+
+    @Test void shouldRoundTripExtensionMembers() throws IOException {
+        ProblemDetail problem = read("{"
+                + "\"foo\":{\"bar\":[1,{\"baz\":null}], \"b\\\"az\" : true},"
+                + "\"title\":\"foo-title\","
+                + "\"list\":[{},[ ]],"
+                + "\"number\":1.5,"
+                + "\"nothing\":null,"
+                + "\"instance\":\"foo-instance\""
+                + "}");
+
+        assertThat(problem).isEqualTo(ProblemDetail.builder()
+                .title("foo-title")
+                .instance(URI.create("foo-instance"))
+                .rawExtension("foo", "{\"bar\":[1,{\"baz\":null}],\"b\\\"az\":true}")
+                .rawExtension("list", "[{},[]]")
+                .rawExtension("number", "1.5")
+                .rawExtension("nothing", "null")
+                .build());
+        assertThat(write(problem)).isEqualTo("{"
+                + "\"title\":\"foo-title\","
+                + "\"instance\":\"foo-instance\","
+                + "\"foo\":{\"bar\":[1,{\"baz\":null}],\"b\\\"az\":true},"
+                + "\"list\":[{},[]],"
+                + "\"number\":1.5,"
+                + "\"nothing\":null"
+                + "}");
+    }
+
+    @Test void shouldFailToReadEmptyBody() {
+        Throwable thrown = catchThrowable(() -> read(""));
+
+        assertThat(thrown).isInstanceOf(NoContentException.class);
+    }
+}
@@ -7,6 +7,8 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
+import javax.json.Json;
+import javax.ws.rs.core.Response.StatusType;
 import javax.xml.bind.JAXB;
 import java.io.StringReader;
 import java.io.StringWriter;
@@ -16,7 +18,9 @@ import java.util.Objects;
 import static com.github.t1.problem.ProblemDetail.URN_PROBLEM_INSTANCE_PREFIX;
 import static com.github.t1.problem.ProblemDetail.URN_PROBLEM_PREFIX;
 import static javax.ws.rs.core.Response.Status.CONFLICT;
+import static javax.ws.rs.core.Response.Status.Family.*;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
 
 class ProblemDetailTest {
     private static final String XML = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
@@ -233,6 +237,130 @@ class ProblemDetailTest {
         @Test void toXml() { assertThat(xml(doublyDetail)).isEqualTo(DOUBLY_DETAIL_XML); }
     }
 
+    @Nested
+    @DisplayName("A ProblemDetail with extensions")
+    class WithExtensions {
+        private static final String EXTENDED_DETAIL_JSON = ""
+                + "{"
+                + "\"title\":\"foo-title\","
+                + "\"instance\":\"foo-instance\","
+                + "\"traceId\":\"abc\","
+                + "\"balance\":30,"
+                + "\"accounts\":[\"/account/12345\",\"/account/67890\"]"
+                + "}";
+        private static final String EXTENDED_DETAIL_XML = XML + ""
+                + "<problemDetail>\n"
+                + "    <title>foo-title</title>\n"
+                + "    <instance>foo-instance</instance>\n"
+                + "    <traceId>abc</traceId>\n"
+                + "    <balance>30</balance>\n"
+                + "    <accounts>[\"/account/12345\",\"/account/67890\"]</accounts>\n"
+                + "</problemDetail>\n";
+        private ProblemDetail extendedDetail;
+
+        @BeforeEach void create() {
+            extendedDetail = ProblemDetail
+                    .builder()
+                    .title("foo-title")
+                    .instance(URI.create("foo-instance"))
+                    .extension("traceId", "abc")
+                    .extension("balance", 30)
+                    .extension("accounts", Json.createArrayBuilder()
+                            .add("/account/12345")
+                            .add("/account/67890")
+                            .build())
+                    .build();
+        }
+
+        @Test void hasToString() {
+            assertThat(extendedDetail.toString()).isEqualTo(""
+                    + "title: foo-title\n"
+                    + "instance: foo-instance\n"
+                    + "traceId: \"abc\"\n"
+                    + "balance: 30\n"
+                    + "accounts: [\"/account/12345\",\"/account/67890\"]\n");
+        }
+
+        @Test void hasExtensionNames() {
+            assertThat(extendedDetail.getExtensionNames()).containsExactly("traceId", "balance", "accounts");
+        }
+
+        @Test void hasExtensions() {
+            assertThat(extendedDetail.getExtension("traceId")).isEqualTo(Json.createValue("abc"));
+            assertThat(extendedDetail.getExtension("balance")).isEqualTo(Json.createValue(30));
+            assertThat(extendedDetail.getExtension("accounts").asJsonArray().getString(1)).isEqualTo("/account/67890");
+            assertThat(extendedDetail.getExtension("unknown")).isNull();
+        }
+
+        @Test void hasRawExtensions() {
+            assertThat(extendedDetail.getRawExtension("balance")).isEqualTo("30");
+            assertThat(extendedDetail.getRawExtension("unknown")).isNull();
+        }
+
+        @Test void shouldNotAcceptStandardFieldAsExtension() {
+            Throwable thrown = catchThrowable(() -> ProblemDetail.builder().extension("title", "foo"));
+
+            assertThat(thrown).isInstanceOf(IllegalArgumentException.class);
+        }
+
+        @Test void fromJson() { assertThat(ProblemDetail.fromJson(EXTENDED_DETAIL_JSON)).isEqualTo(extendedDetail); }
+
+        @Test void toXml() { assertThat(xml(extendedDetail)).isEqualTo(EXTENDED_DETAIL_XML); }
+
+        @Test void fromXml() {
+            ProblemDetail fromXml = xml(EXTENDED_DETAIL_XML);
+
+            assertThat(fromXml.getExtension("traceId")).isEqualTo(Json.createValue("abc"));
+            assertThat(fromXml.getExtension("balance")).isEqualTo(Json.createValue("30"));
+            assertThat(xml(fromXml)).isEqualTo(EXTENDED_DETAIL_XML);
+        }
+    }
+
+    @Nested
+    @DisplayName("A ProblemDetail's status")
+    class StatusTypes {
+        @Test void shouldBeStandardStatusType() {
+            ProblemDetail problem = ProblemDetail.builder().status(CONFLICT).build();
+
+            assertThat(problem.getStatusType()).isSameAs(CONFLICT);
+        }
+
+        @Test void shouldSynthesizeMissingStatusType() {
+            StatusType statusType = ProblemDetail.builder().status(422).build().getStatusType();
+
+            assertThat(statusType.getStatusCode()).isEqualTo(422);
+            assertThat(statusType.getFamily()).isEqualTo(CLIENT_ERROR);
+            assertThat(statusType.getReasonPhrase()).isEqualTo("Unprocessable Entity");
+            assertThat(ProblemDetail.builder().status(422).build().getStatusType()).isSameAs(statusType);
+        }
+
+        @Test void shouldSynthesizeUnregisteredStatusType() {
+            StatusType statusType = ProblemDetail.builder().status(599).build().getStatusType();
+
+            assertThat(statusType.getStatusCode()).isEqualTo(599);
+            assertThat(statusType.getFamily()).isEqualTo(SERVER_ERROR);
+            assertThat(statusType.getReasonPhrase()).isEmpty();
+        }
+
+        @Test void shouldHaveNoStatusTypeOutOfRange() {
+            assertThat(ProblemDetail.builder().status(600).build().getStatusType()).isNull();
+            assertThat(ProblemDetail.builder().status(600).build().getStatus()).isEqualTo(600);
+        }
+
+        @Test void shouldHaveNoStatusTypeWithoutStatus() {
+            ProblemDetail problem = ProblemDetail.builder().status((Integer) null).build();
+
+            assertThat(problem.getStatus()).isNull();
+            assertThat(problem.getStatusType()).isNull();
+        }
+
+        @Test void shouldUnmarshalMissingStatus() {
+            ProblemDetail problem = xml(XML + "<problemDetail><title>foo</title></problemDetail>");
+
+            assertThat(problem.getStatus()).isNull();
+        }
+    }
+
     private Condition<? super ProblemDetail> equalIgnoringInstance(ProblemDetail expected) {
         return new Condition<>(actual ->
                 Objects.equals(expected.getType(), actual.getType()) &&
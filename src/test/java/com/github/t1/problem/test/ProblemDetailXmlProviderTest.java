@@ -0,0 +1,152 @@
+package com.github.t1.problem.test;
+
+import com.github.t1.problem.*;
+import org.junit.jupiter.api.Test;
+
+import javax.json.Json;
+import javax.ws.rs.core.NoContentException;
+import javax.xml.bind.*;
+import java.io.*;
+import java.net.URI;
+import java.util.List;
+
+import static com.github.t1.problem.ProblemDetail.APPLICATION_PROBLEM_XML_TYPE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static javax.ws.rs.core.Response.Status.*;
+import static org.assertj.core.api.Assertions.*;
+
+class ProblemDetailXmlProviderTest {
+    private static final JAXBContext JAXB_CONTEXT = jaxbContext();
+
+    private static JAXBContext jaxbContext() {
+        try {
+            return JAXBContext.newInstance(ProblemDetail.class);
+        } catch (JAXBException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static final List<ProblemDetail> PROBLEMS = asList(
+            ProblemDetail.builder().instance(null).build(),
+            ProblemDetail.builder().title("only a title").instance(null).build(),
+            ProblemDetail.builder()
+                    .type(URI.create("urn:problem:foo-type"))
+                    .title("foo-title")
+                    .status(CONFLICT)
+                    .detail("foo & <bar> \"baz\" 'qux' ä€😀")
+                    .instance(URI.create("urn:test:a?b=c&d=e"))
+                    .extension("traceId", "abc")
+                    .extension("balance", 30)
+                    .extension("accounts", Json.createArrayBuilder().add("/account/1").add("<2>").build())
+                    .extension("not a name", "skipped")
+                    .cause(ProblemDetail.builder()
+                            .title("cause-title")
+                            .instance(URI.create("cause-instance"))
+                            .extension("flag", true)
+                            .cause(ProblemDetail.builder().instance(null).build())
+                            .build())
+                    .build());
+
+    private static String write(ProblemDetail problem, boolean formatted) throws IOException {
+        ProblemDetailXmlProvider provider = new ProblemDetailXmlProvider(formatted);
+        assertThat(provider.isWriteable(ProblemDetail.class, null, null, APPLICATION_PROBLEM_XML_TYPE)).isTrue();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        provider.writeTo(problem, ProblemDetail.class, null, null, APPLICATION_PROBLEM_XML_TYPE, null, out);
+        return new String(out.toByteArray(), UTF_8);
+    }
+
+    private static String marshal(ProblemDetail problem, boolean formatted) throws JAXBException {
+        Marshaller marshaller = JAXB_CONTEXT.createMarshaller();
+        marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, formatted);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        marshaller.marshal(problem, out);
+        return new String(out.toByteArray(), UTF_8);
+    }
+
+    private static ProblemDetail read(String xml) throws IOException {
+        ProblemDetailXmlProvider provider = new ProblemDetailXmlProvider();
+        assertThat(provider.isReadable(ProblemDetail.class, null, null, APPLICATION_PROBLEM_XML_TYPE)).isTrue();
+        return provider.readFrom(ProblemDetail.class, null, null, APPLICATION_PROBLEM_XML_TYPE, null,
+                new ByteArrayInputStream(xml.getBytes(UTF_8)));
+    }
+
+    private static ProblemDetail unmarshal(String xml) throws JAXBException {
+        return (ProblemDetail) JAXB_CONTEXT.createUnmarshaller().unmarshal(new StringReader(xml));
+    }
+
+    @Test void shouldWriteLikeJaxb() throws Exception {
+        for (ProblemDetail problem : PROBLEMS)
+            assertThat(write(problem, false)).isEqualTo(marshal(problem, false));
+    }
+
+    @Test void shouldWriteFormattedLikeJaxb() throws Exception {
+        for (ProblemDetail problem : PROBLEMS)
+            assertThat(write(problem, true)).isEqualTo(marshal(problem, true));
+    }
+
+    @Test void shouldReadLikeJaxb() throws Exception {
+        for (ProblemDetail problem : PROBLEMS) {
+            String xml = marshal(problem, true);
+
+            assertThat(read(xml)).isEqualTo(unmarshal(xml));
+        }
+    }
+
+    @Test void shouldWriteFormattedNestedCause() throws IOException {
+        ProblemDetail problem = ProblemDetail.builder()
+                .title("foo-title")
+                .instance(URI.create("foo-instance"))
+                .cause(ProblemDetail.builder().title("cause-title").instance(URI.create("cause-instance")).build())
+                .build();
+
+        assertThat(write(problem, true)).isEqualTo(""
+                + "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                + "<problemDetail>\n"
+                + "    <title>foo-title</title>\n"
+                + "    <instance>foo-instance</instance>\n"
+                + "    <cause>\n"
+                + "        <title>cause-title</title>\n"
+                + "        <instance>cause-instance</instance>\n"
+                + "    </cause>\n"
+                + "</problemDetail>\n");
+    }
+
+    @Test void shouldReadNestedElementsOfExtensionAsText() throws IOException {
+        ProblemDetail problem = read("<problemDetail><note>a<b>b</b>c</note></problemDetail>");
+
+        assertThat(problem.getRawExtension("note")).isEqualTo("\"abc\"");
+    }
+
+    @Test void shouldFailToReadEmptyBody() {
+        Throwable thrown = catchThrowable(() -> read(""));
+
+        assertThat(thrown).isInstanceOf(NoContentException.class);
+    }
+
+    @Test void shouldFailToReadOtherRootElement() {
+        Throwable thrown = catchThrowable(() -> read("<foo/>"));
+
+        assertThat(thrown).isInstanceOf(IOException.class).hasMessageContaining("problemDetail");
+    }
+
+    @Test void shouldFailToReadDtd() {
+        Throwable thrown = catchThrowable(() -> read("<?xml version=\"1.0\"?>"
+                + "<!DOCTYPE problemDetail [<!ENTITY xxe SYSTEM \"file:///etc/passwd\">]>"
+                + "<problemDetail><detail>&xxe;</detail></problemDetail>"));
+
+        assertThat(thrown).isInstanceOf(IOException.class);
+    }
+
+    @Test void shouldLimitCauseDepth() {
+        ParseLimits.setMaxCauseDepth(1);
+        try {
+            Throwable thrown = catchThrowable(() -> read(
+                    "<problemDetail><cause><cause><title>too deep</title></cause></cause></problemDetail>"));
+
+            assertThat(thrown).isInstanceOf(IOException.class).hasMessageContaining("max cause depth");
+        } finally {
+            ParseLimits.setMaxCauseDepth(ParseLimits.DEFAULT_MAX_CAUSE_DEPTH);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.github.t1.problem.test;
+
+import com.github.t1.problem.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.json.JsonException;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.xml.bind.JAXB;
+import java.io.*;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static javax.ws.rs.core.Response.Status.*;
+import static org.assertj.core.api.Assertions.*;
+
+class ProblemErrorsTest {
+    private static final URI TYPE = URI.create("urn:problem:invalid-email");
+    private static final ProblemDetail PROBLEM = ProblemDetail.builder()
+            .title("invalid records")
+            .status(BAD_REQUEST)
+            .instance(null)
+            .errors(ProblemErrors.builder()
+                    .maxSize(2)
+                    .error(ProblemError.builder().type(TYPE).pointer("#/records/1/email").detail("no @").build())
+                    .error("#/records/7/name", "too <long>")
+                    .error("#/records/9/name", "dropped")
+                    .omitted(3)
+                    .build())
+            .cause(ProblemDetail.builder().title("cause").instance(null)
+                    .errors(ProblemErrors.builder().error(ProblemError.builder().build()).build())
+                    .build())
+            .build();
+    private static final String PROBLEM_JSON = "{"
+            + "\"title\":\"invalid records\","
+            + "\"status\":400,"
+            + "\"errors\":["
+            + /**/"{\"type\":\"urn:problem:invalid-email\",\"pointer\":\"#/records/1/email\",\"detail\":\"no @\"},"
+            + /**/"{\"pointer\":\"#/records/7/name\",\"detail\":\"too <long>\"}"
+            + "],"
+            + "\"errorsOmitted\":4,"
+            + "\"cause\":{\"title\":\"cause\",\"errors\":[{}]}"
+            + "}";
+
+    @AfterEach void resetLimits() { ParseLimits.setMaxErrors(ParseLimits.DEFAULT_MAX_ERRORS); }
+
+    private static byte[] write(MessageBodyWriter<ProblemDetail> writer, ProblemDetail problem) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeTo(problem, ProblemDetail.class, null, null, null, null, out);
+        return out.toByteArray();
+    }
+
+    private static ProblemDetail read(MessageBodyReader<ProblemDetail> reader, byte[] bytes) throws IOException {
+        return reader.readFrom(ProblemDetail.class, null, null, null, null, new ByteArrayInputStream(bytes));
+    }
+
+    @Test void shouldCapErrors() {
+        ProblemErrors errors = PROBLEM.getErrors();
+
+        assertThat(errors.size()).isEqualTo(2);
+        assertThat(errors.get(1)).isEqualTo(ProblemError.of("#/records/7/name", "too <long>"));
+        assertThat(errors.getOmitted()).isEqualTo(4);
+        assertThat(errors).hasToString("2 errors and 4 omitted");
+        assertThat(PROBLEM.toString()).contains("errors: 2 errors and 4 omitted\n");
+    }
+
+    @Test void shouldBuildEmpty() {
+        assertThat(ProblemErrors.builder().build()).isSameAs(ProblemErrors.EMPTY);
+        assertThat(ProblemDetail.builder().build().getErrors()).isSameAs(ProblemErrors.EMPTY);
+    }
+
+    @Test void shouldRejectNegativeOmitted() {
+        Throwable thrown = catchThrowable(() -> ProblemErrors.builder().omitted(-1));
+
+        assertThat(thrown).isInstanceOf(IllegalArgumentException.class).hasMessageContaining("negative");
+    }
+
+    @Test void shouldSaturateOmitted() {
+        ProblemErrors errors = ProblemErrors.builder().maxSize(0).omitted(Long.MAX_VALUE).error("#/a", "b").build();
+
+        assertThat(errors.getOmitted()).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test void shouldRoundTripHugeOmitted() throws IOException {
+        ProblemDetail problem = ProblemDetail.builder().instance(null)
+                .errors(ProblemErrors.builder().omitted(Long.MAX_VALUE).build()).build();
+        ProblemDetailBinaryProvider provider = new ProblemDetailBinaryProvider();
+
+        assertThat(new String(write(new ProblemDetailJsonProvider(), problem), UTF_8))
+                .isEqualTo("{\"errorsOmitted\":9223372036854775807}");
+        assertThat(read(provider, write(provider, problem))).isEqualTo(problem);
+    }
+
+    @Test void shouldFailToReadNegativeOmitted() {
+        Throwable thrown = catchThrowable(() -> ProblemDetail.fromJson("{\"errorsOmitted\":-3}"));
+
+        assertThat(thrown).isInstanceOf(JsonException.class).hasMessageContaining("errorsOmitted");
+    }
+
+    @Test void shouldRejectErrorsAsExtension() {
+        Throwable thrown = catchThrowable(() -> ProblemDetail.builder().extension("errors", "foo"));
+
+        assertThat(thrown).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test void shouldBuildWebException() {
+        WebException exception = WebException.builderFor(BAD_REQUEST)
+                .errors(ProblemErrors.builder().error("#/a", "b").build()).build();
+
+        assertThat(((ProblemDetail) exception.getResponse().getEntity()).getErrors())
+                .containsExactly(ProblemError.of("#/a", "b"));
+    }
+
+    @Test void shouldWriteJson() throws IOException {
+        assertThat(new String(write(new ProblemDetailJsonProvider(), PROBLEM), UTF_8)).isEqualTo(PROBLEM_JSON);
+    }
+
+    @Test void shouldWriteConstantJsonLikeRegular() throws IOException {
+        ProblemDetail problem = ProblemDetail.builder().status(BAD_REQUEST).instance(URI.create("urn:test:1"))
+                .errors(PROBLEM.getErrors()).extension("traceId", "abc").build();
+        ProblemDetail constant = ConstantProblem.of(problem).problem(URI.create("urn:test:1"));
+
+        assertThat(write(new ProblemDetailJsonProvider(), constant))
+                .isEqualTo(write(new ProblemDetailJsonProvider(), problem));
+    }
+
+    @Test void shouldStreamErrorsWhileWriting() throws IOException {
+        ProblemErrors.Builder errors = ProblemErrors.builder();
+        for (int i = 0; i < 10_000; i++)
+            errors.error("#/records/" + i, "invalid");
+        ProblemDetail problem = ProblemDetail.builder().status(BAD_REQUEST).errors(errors.build()).build();
+        List<Integer> writes = new ArrayList<>();
+        OutputStream out = new OutputStream() {
+            @Override public void write(int b) { writes.add(1); }
+
+            @Override public void write(byte[] bytes, int offset, int length) { writes.add(length); }
+        };
+
+        new ProblemDetailJsonProvider().writeTo(problem, ProblemDetail.class, null, null, null, null, out);
+
+        assertThat(writes).hasSizeGreaterThan(100).allMatch(length -> length <= 512);
+    }
+
+    @Test void shouldReadJson() {
+        ProblemDetail problem = ProblemDetail.fromJson(PROBLEM_JSON);
+
+        assertThat(problem.getErrors()).isEqualTo(PROBLEM.getErrors());
+        assertThat(problem.getCause().getErrors()).isEqualTo(PROBLEM.getCause().getErrors());
+    }
+
+    @Test void shouldReadOmittedBeforeErrors() {
+        ProblemDetail problem = ProblemDetail.fromJson("{\"errorsOmitted\":3,\"errors\":[{\"detail\":\"a\"}]}");
+
+        assertThat(problem.getErrors()).containsExactly(ProblemError.of(null, "a"));
+        assertThat(problem.getErrors().getOmitted()).isEqualTo(3);
+    }
+
+    @Test void shouldSkipUnknownErrorMembers() {
+        ProblemDetail problem = ProblemDetail.fromJson("{\"errors\":[{\"foo\":{\"bar\":[1]},\"detail\":\"a\"}]}");
+
+        assertThat(problem.getErrors()).containsExactly(ProblemError.of(null, "a"));
+    }
+
+    @Test void shouldCapErrorsWhileReadingJson() {
+        ParseLimits.setMaxErrors(1);
+
+        ProblemDetail problem = ProblemDetail.fromJson(PROBLEM_JSON);
+
+        assertThat(problem.getErrors().size()).isEqualTo(1);
+        assertThat(problem.getErrors().getOmitted()).isEqualTo(5);
+    }
+
+    @Test void shouldPassErrorsToConsumer() {
+        List<ProblemError> consumed = new ArrayList<>();
+
+        ProblemDetail problem = ProblemDetail.fromJson(new ByteArrayInputStream(PROBLEM_JSON.getBytes(UTF_8)),
+                consumed::add);
+
+        assertThat(consumed).containsExactly(PROBLEM.getErrors().get(0), PROBLEM.getErrors().get(1),
+                ProblemError.builder().build());
+        assertThat(problem.getErrors().size()).isZero();
+        assertThat(problem.getErrors().getOmitted()).isEqualTo(4);
+    }
+
+    @Test void shouldWriteXmlLikeJaxb() throws IOException {
+        StringWriter jaxb = new StringWriter();
+        JAXB.marshal(PROBLEM, jaxb);
+
+        assertThat(new String(write(new ProblemDetailXmlProvider(true), PROBLEM), UTF_8)).isEqualTo(jaxb.toString());
+    }
+
+    @Test void shouldReadXml() throws IOException {
+        byte[] xml = write(new ProblemDetailXmlProvider(), PROBLEM);
+
+        assertThat(read(new ProblemDetailXmlProvider(), xml)).isEqualTo(PROBLEM);
+        assertThat(JAXB.unmarshal(new ByteArrayInputStream(xml), ProblemDetail.class)).isEqualTo(PROBLEM);
+    }
+
+    @Test void shouldCapErrorsWhileReadingXml() throws IOException {
+        ParseLimits.setMaxErrors(1);
+
+        ProblemDetail problem = read(new ProblemDetailXmlProvider(), write(new ProblemDetailXmlProvider(), PROBLEM));
+
+        assertThat(problem.getErrors().size()).isEqualTo(1);
+        assertThat(problem.getErrors().getOmitted()).isEqualTo(5);
+    }
+
+    @Test void shouldRoundTripBinary() throws IOException {
+        ProblemDetailBinaryProvider provider = new ProblemDetailBinaryProvider(
+                ProblemDictionary.builder().type(TYPE).build());
+
+        ProblemDetail problem = read(provider, write(provider, PROBLEM));
+
+        assertThat(problem).isEqualTo(PROBLEM);
+        assertThat(problem.getErrors().get(0).getType()).isSameAs(TYPE);
+    }
+}
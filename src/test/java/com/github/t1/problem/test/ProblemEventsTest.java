@@ -0,0 +1,115 @@
+package com.github.t1.problem.test;
+
+import com.github.t1.problem.ProblemDetail;
+import com.github.t1.problem.ProblemDetailBinaryProvider;
+import com.github.t1.problem.ProblemDetailJsonProvider;
+import com.github.t1.problem.ReturnStatus;
+import com.github.t1.problem.WebApplicationApplicationException;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.ws.rs.core.Response;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.github.t1.problem.ProblemDetail.*;
+import static com.github.t1.problem.WebException.*;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.toList;
+import static javax.ws.rs.core.Response.Status.*;
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+class ProblemEventsTest {
+    private static final String JSON = "{\"type\":\"urn:test:boom\",\"status\":400,\"cause\":{\"detail\":\"inner\"}}";
+
+    private final Recording recording = new Recording();
+
+    @BeforeEach void start() {
+        recording.enable("com.github.t1.problem.Created");
+        recording.enable("com.github.t1.problem.Serialized");
+        recording.enable("com.github.t1.problem.Parsed");
+        recording.start();
+    }
+
+    @AfterEach void close() { recording.close(); }
+
+    private List<RecordedEvent> events(String name) throws IOException {
+        recording.stop();
+        Path file = Files.createTempFile("problem-events", ".jfr");
+        try {
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> event.getEventType().getName().equals("com.github.t1.problem." + name))
+                    .collect(toList());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @ReturnStatus(value = CONFLICT, stackless = true)
+    private static class EventConflictException extends WebApplicationApplicationException {
+        EventConflictException() { super("conflicting events"); }
+    }
+
+    @Test void shouldEmitCreatedEvents() throws Exception {
+        builderFor(INTERNAL_SERVER_ERROR).type(URI.create("urn:test:boom")).build();
+        new EventConflictException();
+
+        List<RecordedEvent> events = events("Created");
+
+        assertThat(events).hasSize(2);
+        assertThat(events.get(0).getInt("status")).isEqualTo(500);
+        assertThat(events.get(0).getString("type")).isEqualTo("urn:test:boom");
+        assertThat(events.get(0).getBoolean("stackTraceCaptured")).isTrue();
+        assertThat(events.get(1).getInt("status")).isEqualTo(409);
+        assertThat(events.get(1).getString("type")).endsWith("ProblemEventsTest$EventConflictException");
+        assertThat(events.get(1).getBoolean("stackTraceCaptured")).isFalse();
+    }
+
+    @Test void shouldEmitSerializedEvents() throws Exception {
+        ProblemDetail problem = ProblemDetail.builder().status(BAD_REQUEST).detail("bad").build();
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+
+        new ProblemDetailJsonProvider().writeTo(problem, ProblemDetail.class, null, null, null, null, json);
+        new ProblemDetailBinaryProvider().writeTo(problem, ProblemDetail.class, null, null, null, null, binary);
+
+        List<RecordedEvent> events = events("Serialized");
+        assertThat(events).hasSize(2);
+        assertThat(events.get(0).getString("mediaType")).isEqualTo(APPLICATION_PROBLEM_JSON);
+        assertThat(events.get(0).getLong("bytes")).isEqualTo(json.size());
+        assertThat(events.get(1).getString("mediaType")).isEqualTo(APPLICATION_PROBLEM_BINARY);
+        assertThat(events.get(1).getLong("bytes")).isEqualTo(binary.size());
+    }
+
+    @Test void shouldEmitParsedEvents() throws Exception {
+        byte[] bytes = JSON.getBytes(UTF_8);
+        Response response = mock(Response.class);
+        given(response.getMediaType()).willReturn(APPLICATION_PROBLEM_JSON_TYPE);
+        given(response.readEntity(InputStream.class)).willReturn(new ByteArrayInputStream(bytes));
+
+        ProblemDetail.fromJson(JSON);
+        ProblemDetail.fromJson(bytes);
+        ProblemDetail.fromJson(new ByteArrayInputStream(bytes));
+        ProblemDetail.fromJson(new StringReader(JSON));
+        ProblemDetail.from(response);
+
+        List<RecordedEvent> events = events("Parsed");
+        long size = bytes.length;
+        assertThat(events).extracting(event -> event.getLong("bytes")).containsExactly(size, size, size, -1L, size);
+        assertThat(events).extracting(event -> event.getInt("causeDepth")).containsOnly(1);
+    }
+}
@@ -0,0 +1,130 @@
+package com.github.t1.problem.test;
+
+import com.github.t1.problem.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.core.Response;
+import java.net.URI;
+
+import static com.github.t1.problem.ProblemDetail.APPLICATION_PROBLEM_JSON_TYPE;
+import static javax.ws.rs.core.Response.Status.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProblemExceptionMapperTest {
+    private final ProblemExceptionMapper mapper = new ProblemExceptionMapper();
+
+    @ReturnStatus(CONFLICT)
+    private static class MappedConflictException extends RuntimeException {
+        MappedConflictException(String message) { super(message); }
+    }
+
+    private static class SpecialConflictException extends MappedConflictException {
+        SpecialConflictException() { super("special"); }
+    }
+
+    @ReturnStatus(value = CONFLICT, exposeMessage = true)
+    private static class ExposedConflictException extends RuntimeException {
+        ExposedConflictException(String message) { super(message); }
+    }
+
+    private static class ThirdPartyException extends RuntimeException {
+        ThirdPartyException(String message) { super(message); }
+    }
+
+    private static class ThirdPartyLockException extends ThirdPartyException {
+        ThirdPartyLockException() { super("locked"); }
+    }
+
+    @AfterEach void unregister() {
+        ProblemExceptionMapper.unregister(ThirdPartyException.class);
+        ProblemExceptionMapper.unregister(MappedConflictException.class);
+    }
+
+    private static ProblemDetail problem(Response response) { return (ProblemDetail) response.getEntity(); }
+
+    @Test void shouldPassThroughWebApplicationException() {
+        NotFoundException exception = new NotFoundException();
+
+        assertThat(mapper.toResponse(exception)).isSameAs(exception.getResponse());
+    }
+
+    @Test void shouldMapAnnotatedException() {
+        Response response = mapper.toResponse(new MappedConflictException("conflict"));
+
+        assertThat(response.getStatus()).isEqualTo(409);
+        assertThat(response.getMediaType()).isEqualTo(APPLICATION_PROBLEM_JSON_TYPE);
+        assertThat(problem(response).getType()).isEqualTo(URI.create(
+                "urn:problem:java:com.github.t1.problem.test.ProblemExceptionMapperTest$MappedConflictException"));
+        assertThat(problem(response).getTitle()).isEqualTo("mapped conflict");
+        assertThat(problem(response).getDetail()).isNull();
+    }
+
+    @Test void shouldExposeMessageOfAnnotatedException() {
+        Response response = mapper.toResponse(new ExposedConflictException("conflict"));
+
+        assertThat(response.getStatus()).isEqualTo(409);
+        assertThat(problem(response).getDetail()).isEqualTo("conflict");
+    }
+
+    @Test void shouldMapSubTypeOfAnnotatedException() {
+        Response response = mapper.toResponse(new SpecialConflictException());
+
+        assertThat(response.getStatus()).isEqualTo(409);
+        assertThat(problem(response).getTitle()).isEqualTo("special conflict");
+        assertThat(problem(response).getDetail()).isNull();
+    }
+
+    @Test void shouldMapUnknownException() {
+        Response response = mapper.toResponse(new ThirdPartyLockException());
+
+        assertThat(response.getStatus()).isEqualTo(500);
+        assertThat(problem(response).getDetail()).isNull();
+    }
+
+    @Test void shouldMapRegisteredSuperType() {
+        ProblemExceptionMapper.register(ThirdPartyException.class, CONFLICT);
+
+        Response response = mapper.toResponse(new ThirdPartyLockException());
+
+        assertThat(response.getStatus()).isEqualTo(409);
+        assertThat(problem(response).getTitle()).isEqualTo("third party lock");
+        assertThat(problem(response).getDetail()).isNull();
+    }
+
+    @Test void shouldExposeMessageOfRegisteredType() {
+        ProblemExceptionMapper.register(ThirdPartyException.class, CONFLICT, true);
+
+        Response response = mapper.toResponse(new ThirdPartyLockException());
+
+        assertThat(response.getStatus()).isEqualTo(409);
+        assertThat(problem(response).getDetail()).isEqualTo("locked");
+    }
+
+    @Test void shouldMapRegisteredTemplate() {
+        ProblemExceptionMapper.register(ThirdPartyException.class,
+                ProblemTemplate.of(SERVICE_UNAVAILABLE, URI.create("urn:test:locked"), "locked"));
+
+        Response response = mapper.toResponse(new ThirdPartyLockException());
+
+        assertThat(response.getStatus()).isEqualTo(503);
+        assertThat(problem(response).getType()).isEqualTo(URI.create("urn:test:locked"));
+    }
+
+    @Test void shouldPreferRegistrationOverAnnotation() {
+        ProblemExceptionMapper.register(MappedConflictException.class, GONE);
+
+        assertThat(mapper.toResponse(new MappedConflictException("gone")).getStatus()).isEqualTo(410);
+        assertThat(mapper.toResponse(new SpecialConflictException()).getStatus()).isEqualTo(410);
+    }
+
+    @Test void shouldUnregister() {
+        ProblemExceptionMapper.register(ThirdPartyException.class, CONFLICT);
+        mapper.toResponse(new ThirdPartyLockException());
+
+        ProblemExceptionMapper.unregister(ThirdPartyException.class);
+
+        assertThat(mapper.toResponse(new ThirdPartyLockException()).getStatus()).isEqualTo(500);
+    }
+}
@@ -0,0 +1,190 @@
+package com.github.t1.problem.test;
+
+import com.github.t1.problem.*;
+import org.junit.jupiter.api.Test;
+
+import javax.json.JsonException;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.core.Response;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+
+import static com.github.t1.problem.ProblemDetail.*;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static javax.ws.rs.core.Response.Status.*;
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.mock;
+
+class ProblemExceptionsTest {
+    private static final URI INSTANCE = URI.create("urn:test:instance");
+
+    @ReturnStatus(CONFLICT)
+    private static class ClientConflictException extends WebApplicationApplicationException {
+        ClientConflictException(String detail) { super(detail); }
+
+        ClientConflictException(ProblemDetail received) { super(received); }
+    }
+
+    @ReturnStatus(SERVICE_UNAVAILABLE)
+    private static class ClientUnavailableException extends WebException {
+        ClientUnavailableException(ProblemDetail received) { super(received); }
+    }
+
+    private static class ClientMissingConstructorException extends WebException {
+        ClientMissingConstructorException(String detail) { super(detail); }
+    }
+
+    private final ProblemExceptions exceptions = ProblemExceptions.builder()
+            .type(ClientConflictException.class)
+            .type(ClientUnavailableException.class)
+            .build();
+
+    private static ProblemDetail problemFor(Class<?> type, String detail) {
+        return ProblemDetail.builder().type(ProblemType.of(type).getType()).status(ProblemType.of(type).getStatus())
+                .detail(detail).instance(INSTANCE).extension("retry", 3).build();
+    }
+
+    private static byte[] json(ProblemDetail problem) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ProblemDetailJsonProvider().writeTo(problem, ProblemDetail.class, null, null, null, null, out);
+        return out.toByteArray();
+    }
+
+    @Test void shouldCreateRegisteredType() {
+        ProblemDetail problem = problemFor(ClientConflictException.class, "already there");
+
+        WebException exception = exceptions.toException(problem, 409);
+
+        assertThat(exception).isInstanceOf(ClientConflictException.class);
+        assertThat(exception.getResponse().getStatus()).isEqualTo(409);
+        assertThat(exception.getResponse().getEntity()).isSameAs(problem);
+        assertThat(exception.getMessage()).contains("already there", INSTANCE.toString());
+    }
+
+    @Test void shouldCreateRegisteredServerErrorType() {
+        ProblemDetail problem = problemFor(ClientUnavailableException.class, "down for maintenance");
+
+        WebException exception = exceptions.toException(problem, 503);
+
+        assertThat(exception).isInstanceOf(ClientUnavailableException.class);
+        assertThat(exception.getResponse().getStatus()).isEqualTo(503);
+        assertThat(exception.getResponse().getEntity()).isSameAs(problem);
+        assertThat(exception.getMessage()).contains("down for maintenance");
+    }
+
+    @Test void shouldUseAnnotatedStatusForReceivedProblemWithoutStatus() {
+        ProblemDetail problem = ProblemDetail.builder().type(ProblemType.of(ClientConflictException.class).getType())
+                .status((Integer) null).detail("already there").build();
+
+        WebException exception = exceptions.toException(problem, 409);
+
+        assertThat(exception.getResponse().getStatus()).isEqualTo(409);
+        assertThat(exception.getResponse().getEntity()).isSameAs(problem);
+    }
+
+    @Test void shouldNotCountReceivedProblemAsCreated() {
+        ProblemDetail problem = problemFor(ClientConflictException.class, "already there");
+        ProblemMetrics metrics = mock(ProblemMetrics.class);
+        Instrumentation.setMetrics(metrics);
+        try {
+            exceptions.toException(problem, 409);
+            new ClientConflictException("created here");
+        } finally {
+            Instrumentation.setMetrics(ProblemCounters.getDefault());
+        }
+
+        then(metrics).should().created(argThat(created -> "created here".equals(created.getDetail())), anyLong());
+        then(metrics).shouldHaveNoMoreInteractions();
+    }
+
+    @Test void shouldFallBackForUnregisteredType() {
+        ProblemDetail problem = ProblemDetail.builder()
+                .type(URI.create("urn:problem:java:java.lang.ProcessBuilder")).status(BAD_REQUEST).build();
+
+        WebException exception = exceptions.toException(problem, 400);
+
+        assertThat(exception.getClass()).isEqualTo(WebApplicationApplicationException.class);
+        assertThat(exception.getResponse().getStatus()).isEqualTo(400);
+        assertThat(exception.getResponse().getEntity()).isSameAs(problem);
+    }
+
+    @Test void shouldFallBackForServerErrorWithoutType() {
+        ProblemDetail problem = ProblemDetail.builder().type(null).status(BAD_GATEWAY).build();
+
+        WebException exception = exceptions.toException(problem, 502);
+
+        assertThat(exception.getClass()).isEqualTo(WebException.class);
+        assertThat(exception.getResponse().getStatus()).isEqualTo(502);
+    }
+
+    @Test void shouldRejectTypeWithoutSuitableConstructor() {
+        assertThatThrownBy(() -> ProblemExceptions.builder().type(ClientMissingConstructorException.class).build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("requires a constructor");
+    }
+
+    @Test void shouldRejectDuplicateType() {
+        assertThatThrownBy(() -> ProblemExceptions.builder()
+                .type(ClientConflictException.class).type(ClientConflictException.class).build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("duplicate");
+    }
+
+    @Test void shouldConvertResponse() throws Exception {
+        byte[] json = json(problemFor(ClientConflictException.class, "already there"));
+        Response response = mock(Response.class);
+        given(response.getStatus()).willReturn(409);
+        given(response.getMediaType()).willReturn(APPLICATION_PROBLEM_JSON_TYPE);
+        given(response.readEntity(InputStream.class)).willReturn(new ByteArrayInputStream(json));
+
+        WebException exception = exceptions.toException(response);
+
+        assertThat(exception).isInstanceOf(ClientConflictException.class);
+        ProblemDetail problem = (ProblemDetail) exception.getResponse().getEntity();
+        assertThat(problem.getDetail()).isEqualTo("already there");
+        assertThat(problem.getInstance()).isEqualTo(INSTANCE);
+    }
+
+    @Test void shouldThrowFromFilter() throws Exception {
+        byte[] json = json(problemFor(ClientConflictException.class, "already there"));
+        ClientResponseContext response = mock(ClientResponseContext.class);
+        given(response.getStatus()).willReturn(409);
+        given(response.getMediaType()).willReturn(APPLICATION_PROBLEM_JSON_TYPE);
+        given(response.hasEntity()).willReturn(true);
+        given(response.getEntityStream()).willReturn(new ByteArrayInputStream(json));
+
+        Throwable thrown = catchThrowable(() -> new ProblemExceptionFilter(exceptions).filter(null, response));
+
+        assertThat(thrown).isInstanceOf(ClientConflictException.class);
+        assertThat(((WebException) thrown).getResponse().getEntity()).hasFieldOrPropertyWithValue("instance", INSTANCE);
+    }
+
+    @Test void shouldThrowGenericExceptionForUnreadableProblemFromFilter() throws Exception {
+        ClientResponseContext response = mock(ClientResponseContext.class);
+        given(response.getStatus()).willReturn(409);
+        given(response.getMediaType()).willReturn(APPLICATION_PROBLEM_JSON_TYPE);
+        given(response.hasEntity()).willReturn(true);
+        given(response.getEntityStream()).willReturn(new ByteArrayInputStream("{\"status\":".getBytes(UTF_8)));
+
+        Throwable thrown = catchThrowable(() -> new ProblemExceptionFilter(exceptions).filter(null, response));
+
+        assertThat(thrown.getClass()).isEqualTo(WebApplicationApplicationException.class);
+        assertThat(((WebException) thrown).getResponse().getStatus()).isEqualTo(409);
+        assertThat(thrown).hasMessageContaining("unreadable problem detail").hasCauseInstanceOf(JsonException.class);
+    }
+
+    @Test void shouldIgnoreSuccessInFilter() throws Exception {
+        ClientResponseContext response = mock(ClientResponseContext.class);
+        given(response.getStatus()).willReturn(200);
+        given(response.getMediaType()).willReturn(APPLICATION_PROBLEM_JSON_TYPE);
+
+        new ProblemExceptionFilter(exceptions).filter(null, response);
+    }
+}
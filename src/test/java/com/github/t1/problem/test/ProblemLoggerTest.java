@@ -0,0 +1,142 @@
+package com.github.t1.problem.test;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.github.t1.problem.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+
+import static com.github.t1.problem.WebException.*;
+import static java.util.stream.Collectors.*;
+import static javax.ws.rs.core.Response.Status.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProblemLoggerTest {
+    private static final String NAME = ProblemLoggerTest.class.getName();
+    private static final URI TYPE = URI.create("urn:test:storm");
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger(NAME);
+    private final ListAppender<ILoggingEvent> appender = appender();
+
+    private ListAppender<ILoggingEvent> appender() {
+        ListAppender<ILoggingEvent> appender = new ListAppender<>();
+        appender.start();
+        logger.addAppender(appender);
+        return appender;
+    }
+
+    @AfterEach void detach() { logger.detachAppender(appender); }
+
+    private ProblemLogger.ProblemLoggerBuilder problemLogger() {
+        return ProblemLogger.builder().name(NAME).burst(3).permitsPerSecond(0);
+    }
+
+    private List<String> messages() { return appender.list.stream().map(ILoggingEvent::getMessage).collect(toList()); }
+
+    @Test void shouldLogFirstOccurrencesWithStackTrace() {
+        ProblemLogger problemLogger = problemLogger().build();
+
+        for (int i = 0; i < 10; i++)
+            problemLogger.log(TYPE, 502, "upstream failed " + i, new RuntimeException("boom"));
+
+        assertThat(messages()).containsExactly("upstream failed 0", "upstream failed 1", "upstream failed 2");
+        assertThat(appender.list).allMatch(event -> event.getThrowableProxy() != null);
+    }
+
+    @Test void shouldSummarizeOnFlush() {
+        ProblemLogger problemLogger = problemLogger().build();
+        for (int i = 0; i < 10; i++)
+            problemLogger.log(TYPE, 502, "upstream failed", null);
+
+        problemLogger.flush();
+        problemLogger.flush();
+
+        assertThat(messages()).hasSize(4).last().asString()
+                .matches("type urn:test:storm status 502: 10 occurrences in last \\d+s \\(7 not logged\\)");
+    }
+
+    @Test void shouldSummarizeWithNextOccurrenceAfterInterval() {
+        ProblemLogger problemLogger = problemLogger().burst(1).summaryInterval(Duration.ZERO).build();
+
+        problemLogger.log(TYPE, 502, "first", null);
+        problemLogger.log(TYPE, 502, "second", null);
+        problemLogger.log(TYPE, 502, "third", null);
+
+        assertThat(messages()).containsExactly("first",
+                "type urn:test:storm status 502: 1 occurrences in last 0s (1 not logged)");
+    }
+
+    @Test void shouldStartNewWindowWithoutSuppressedOccurrences() {
+        ProblemLogger problemLogger = problemLogger().burst(2).build();
+        problemLogger.log(TYPE, 502, "first", null);
+        problemLogger.flush();
+
+        problemLogger.log(TYPE, 502, "second", null);
+        problemLogger.log(TYPE, 502, "third", null);
+        problemLogger.flush();
+
+        assertThat(messages()).containsExactly("first", "second",
+                "type urn:test:storm status 502: 2 occurrences in last 0s (1 not logged)");
+    }
+
+    @Test void shouldTrackKeysWithoutType() {
+        ProblemLogger problemLogger = problemLogger().burst(1).build();
+
+        problemLogger.log(null, 502, "no type", null);
+        problemLogger.log(URI.create(""), 502, "empty type", null);
+        problemLogger.log(null, 502, "no type again", null);
+        problemLogger.flush();
+
+        assertThat(messages()).containsExactly("no type", "empty type",
+                "type null status 502: 2 occurrences in last 0s (1 not logged)");
+    }
+
+    @Test void shouldLimitPerKey() {
+        ProblemLogger problemLogger = problemLogger().burst(1).build();
+
+        problemLogger.log(TYPE, 502, "bad gateway", null);
+        problemLogger.log(TYPE, 502, "bad gateway again", null);
+        problemLogger.log(TYPE, 503, "unavailable", null);
+        problemLogger.log(URI.create("urn:test:other"), 502, "other", null);
+
+        assertThat(messages()).containsExactly("bad gateway", "unavailable", "other");
+    }
+
+    @Test void shouldShareBucketBeyondMaxKeys() {
+        ProblemLogger problemLogger = problemLogger().burst(1).maxKeys(1).build();
+
+        problemLogger.log(TYPE, 400, "tracked", null);
+        problemLogger.log(TYPE, 401, "first other", null);
+        problemLogger.log(TYPE, 402, "second other", null);
+        problemLogger.flush();
+
+        assertThat(messages()).containsExactly("tracked", "first other",
+                "other problems: 2 occurrences in last 0s (1 not logged)");
+    }
+
+    @Test void shouldEvictIdleKeyBeyondMaxKeys() {
+        ProblemLogger problemLogger = problemLogger().burst(1).maxKeys(1).summaryInterval(Duration.ZERO).build();
+
+        problemLogger.log(TYPE, 400, "tracked", null);
+        problemLogger.log(TYPE, 401, "evicting", null);
+        problemLogger.log(TYPE, 401, "limited", null);
+
+        assertThat(messages()).containsExactly("tracked", "evicting");
+    }
+
+    @Test void shouldLogWebException() {
+        ProblemLogger problemLogger = problemLogger().build();
+
+        problemLogger.log(builderFor(BAD_GATEWAY).type(TYPE).detail("upstream failed").build());
+
+        assertThat(appender.list).hasSize(1);
+        assertThat(appender.list.get(0).getMessage()).contains("type: urn:test:storm", "detail: upstream failed");
+        assertThat(appender.list.get(0).getThrowableProxy().getClassName()).isEqualTo(WebException.class.getName());
+    }
+}
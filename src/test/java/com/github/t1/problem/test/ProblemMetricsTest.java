@@ -0,0 +1,121 @@
+package com.github.t1.problem.test;
+
+import com.github.t1.problem.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.management.ObjectName;
+import javax.ws.rs.core.Response;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.util.Map;
+
+import static com.github.t1.problem.ProblemDetail.APPLICATION_PROBLEM_JSON_TYPE;
+import static com.github.t1.problem.WebException.*;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static javax.ws.rs.core.Response.Status.*;
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+class ProblemMetricsTest {
+    private final ProblemCounters counters = new ProblemCounters();
+
+    @BeforeEach void install() { Instrumentation.setMetrics(counters); }
+
+    @AfterEach void uninstall() { Instrumentation.setMetrics(ProblemCounters.getDefault()); }
+
+    @ReturnStatus(CONFLICT)
+    private static class MetricsConflictException extends WebApplicationApplicationException {
+        MetricsConflictException() { super("conflicting metrics"); }
+    }
+
+    @Test void shouldCountCreatedProblems() {
+        badRequest("one");
+        badRequest("two");
+        builderFor(INTERNAL_SERVER_ERROR).type(URI.create("urn:test:boom")).build();
+        new MetricsConflictException();
+
+        assertThat(counters.getCreated()).isEqualTo(4);
+        assertThat(counters.getCreatedNanos()).isPositive();
+        assertThat(counters.getCreatedByStatus()).containsExactly(entry(400, 2L), entry(409, 1L), entry(500, 1L));
+        assertThat(counters.getCreatedByFamily()).containsExactly(entry("CLIENT_ERROR", 3L), entry("SERVER_ERROR", 1L));
+        assertThat(counters.getCreatedByType()).containsExactly(
+                entry(ProblemCounters.UNTYPED, 2L),
+                entry("urn:problem:java:com.github.t1.problem.test.ProblemMetricsTest$MetricsConflictException", 1L),
+                entry("urn:test:boom", 1L));
+        assertThat(counters.getReceived()).isZero();
+    }
+
+    @Test void shouldCountTemplateProblems() {
+        ProblemTemplate template = ProblemTemplate.of(TOO_MANY_REQUESTS, URI.create("urn:test:slow-down"), "slow down");
+
+        template.exception("wait");
+        template.response("wait");
+
+        assertThat(counters.getCreatedByStatus()).containsExactly(entry(429, 2L));
+        assertThat(counters.getCreatedByType()).containsExactly(entry("urn:test:slow-down", 2L));
+    }
+
+    @Test void shouldCountReceivedProblems() {
+        Response response = mock(Response.class);
+        given(response.getMediaType()).willReturn(APPLICATION_PROBLEM_JSON_TYPE);
+        given(response.readEntity(InputStream.class)).willReturn(new ByteArrayInputStream(("{"
+                + "\"type\":\"urn:test:outer\",\"status\":502,"
+                + "\"cause\":{\"status\":500,\"cause\":{\"status\":503}}}").getBytes(UTF_8)));
+
+        ProblemDetail problem = ProblemDetail.from(response);
+
+        assertThat(problem.getStatus()).isEqualTo(502);
+        assertThat(counters.getReceived()).isEqualTo(1);
+        assertThat(counters.getReceivedByStatus()).containsExactly(entry(502, 1L));
+        assertThat(counters.getReceivedByType()).containsExactly(entry("urn:test:outer", 1L));
+        assertThat(counters.getCauseDepths()[2]).isEqualTo(1);
+        assertThat(counters.getCreated()).isZero();
+    }
+
+    @Test void shouldCountUntypedAndLimitTypes() {
+        for (int i = 0; i <= ProblemCounters.MAX_TYPES; i++)
+            counters.created(ProblemDetail.builder().type(URI.create("urn:test:" + i)).status(400).build(), 1);
+        counters.created(ProblemDetail.builder().status(400).build(), 1);
+
+        Map<String, Long> byType = counters.getCreatedByType();
+        assertThat(byType).hasSize(ProblemCounters.MAX_TYPES + 2);
+        assertThat(byType).contains(entry(ProblemCounters.OTHER, 1L), entry(ProblemCounters.UNTYPED, 1L));
+    }
+
+    @Test void shouldReset() {
+        badRequest("one");
+
+        counters.reset();
+
+        assertThat(counters.getCreated()).isZero();
+        assertThat(counters.getCreatedByStatus()).isEmpty();
+        assertThat(counters.getCreatedByType()).isEmpty();
+    }
+
+    @Test void shouldSwitchMetricsOff() {
+        Instrumentation.setMetrics(ProblemMetrics.NOOP);
+
+        badRequest("one");
+
+        assertThat(counters.getCreated()).isZero();
+    }
+
+    @Test void shouldExportWithJmx() throws Exception {
+        counters.registerMBean();
+        try {
+            badRequest("one");
+
+            Object created = ManagementFactory.getPlatformMBeanServer()
+                    .getAttribute(new ObjectName(ProblemCounters.OBJECT_NAME), "Created");
+
+            assertThat(created).isEqualTo(1L);
+        } finally {
+            counters.unregisterMBean();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.github.t1.problem.test;
+
+import com.github.t1.problem.Instrumentation;
+import com.github.t1.problem.ProblemRecorder;
+import com.github.t1.problem.ProblemRecorder.Entry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static com.github.t1.problem.WebException.*;
+import static java.util.stream.Collectors.toList;
+import static javax.ws.rs.core.Response.Status.*;
+import static org.assertj.core.api.Assertions.*;
+
+class ProblemRecorderTest {
+    private static final URI BOOM = URI.create("urn:test:boom");
+
+    private final ProblemRecorder recorder = new ProblemRecorder(4, 10);
+
+    @BeforeEach void install() { Instrumentation.setRecorder(recorder); }
+
+    @AfterEach void uninstall() { Instrumentation.setRecorder(null); }
+
+    @Test void shouldRoundUpCapacity() {
+        assertThat(new ProblemRecorder(1, 10).getCapacity()).isEqualTo(1);
+        assertThat(new ProblemRecorder(3, 10).getCapacity()).isEqualTo(4);
+        assertThat(new ProblemRecorder(1000, 10).getCapacity()).isEqualTo(1024);
+        assertThatThrownBy(() -> new ProblemRecorder(0, 10)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test void shouldRecordCreatedProblems() {
+        long before = System.currentTimeMillis();
+        badRequest("one");
+        builderFor(INTERNAL_SERVER_ERROR).type(BOOM).detail("two").build();
+
+        List<Entry> entries = recorder.snapshot();
+
+        assertThat(entries).hasSize(2);
+        assertThat(entries.get(0).getSequence()).isEqualTo(0);
+        assertThat(entries.get(0).getStatus()).isEqualTo(400);
+        assertThat(entries.get(0).getDetail()).isEqualTo("one");
+        assertThat(entries.get(0).getInstance()).isNotNull();
+        assertThat(entries.get(0).getTimestampMillis()).isBetween(before, System.currentTimeMillis());
+        assertThat(entries.get(1).getStatus()).isEqualTo(500);
+        assertThat(entries.get(1).getType()).isEqualTo(BOOM);
+        assertThat(entries.get(1).getDetail()).isEqualTo("two");
+    }
+
+    @Test void shouldTruncateDetail() {
+        badRequest("a rather long detail");
+
+        assertThat(recorder.snapshot()).extracting(Entry::getDetail).containsExactly("a rather l");
+    }
+
+    @Test void shouldKeepOnlyTheMostRecent() {
+        for (int i = 0; i < 10; i++)
+            badRequest("#" + i);
+
+        assertThat(recorder.snapshot()).extracting(Entry::getDetail).containsExactly("#6", "#7", "#8", "#9");
+        assertThat(recorder.getRecorded()).isEqualTo(10);
+        assertThat(recorder.getDropped()).isZero();
+    }
+
+    @Test void shouldFilter() {
+        badRequest("one");
+        builderFor(INTERNAL_SERVER_ERROR).type(BOOM).detail("two").build();
+        notFound("three");
+
+        assertThat(recorder.snapshot(400)).extracting(Entry::getDetail).containsExactly("one");
+        assertThat(recorder.snapshot(BOOM)).extracting(Entry::getDetail).containsExactly("two");
+        assertThat(recorder.snapshot(entry -> entry.getStatus() >= 404)).extracting(Entry::getDetail)
+                .containsExactly("two", "three");
+    }
+
+    @Test void shouldClear() {
+        badRequest("one");
+
+        recorder.clear();
+
+        assertThat(recorder.snapshot()).isEmpty();
+    }
+
+    @Test void shouldNotRecordWhenSwitchedOff() {
+        Instrumentation.setRecorder(null);
+
+        badRequest("one");
+
+        assertThat(recorder.snapshot()).isEmpty();
+    }
+
+    @Test void shouldRecordConsistentEntriesFromConcurrentProducers() throws Exception {
+        ProblemRecorder recorder = new ProblemRecorder(64, 100);
+        Instrumentation.setRecorder(recorder);
+        int threads = 4;
+        int perThread = 2_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            String name = "t" + t;
+            Thread producer = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++)
+                    builderFor(INTERNAL_SERVER_ERROR).type(URI.create("urn:test:" + name)).detail(name).build();
+            });
+            producer.start();
+            producers.add(producer);
+        }
+
+        start.countDown();
+        List<List<Entry>> snapshots = new ArrayList<>();
+        while (producers.stream().anyMatch(Thread::isAlive))
+            snapshots.add(recorder.snapshot());
+        for (Thread producer : producers)
+            producer.join();
+        snapshots.add(recorder.snapshot());
+
+        for (List<Entry> snapshot : snapshots) {
+            assertThat(snapshot).hasSizeLessThanOrEqualTo(64);
+            for (Entry entry : snapshot)
+                assertThat(entry.getType()).hasToString("urn:test:" + entry.getDetail());
+            assertThat(snapshot.stream().map(Entry::getSequence).collect(toList())).isSorted();
+        }
+        assertThat(recorder.getRecorded()).isEqualTo(threads * perThread);
+        assertThat(recorder.snapshot()).hasSize(64);
+    }
+
+    @Test void shouldDropProblemOfLappedProducer() throws Exception {
+        CountDownLatch claimed = new CountDownLatch(1);
+        CountDownLatch lapped = new CountDownLatch(1);
+        Thread slow = new Thread(() -> badRequest("slow"));
+        ProblemRecorder recorder = new ProblemRecorder(1, 100, () -> {
+            if (Thread.currentThread() == slow) {
+                claimed.countDown();
+                try {
+                    lapped.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return 0;
+        });
+        Instrumentation.setRecorder(recorder);
+
+        slow.start();
+        claimed.await();
+        badRequest("fast");
+        lapped.countDown();
+        slow.join();
+
+        assertThat(recorder.snapshot()).extracting(Entry::getSequence, Entry::getDetail)
+                .containsExactly(tuple(1L, "fast"));
+        assertThat(recorder.getDropped()).isEqualTo(1);
+    }
+}
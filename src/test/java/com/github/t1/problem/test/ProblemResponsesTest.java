@@ -0,0 +1,106 @@
+package com.github.t1.problem.test;
+
+import com.github.t1.problem.*;
+import org.junit.jupiter.api.Test;
+
+import javax.ws.rs.core.Response;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.concurrent.*;
+
+import static com.github.t1.problem.ProblemDetail.APPLICATION_PROBLEM_JSON_TYPE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static javax.ws.rs.core.Response.Status.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+class ProblemResponsesTest {
+    @ReturnStatus(value = CONFLICT, exposeMessage = true)
+    private static class AsyncConflictException extends RuntimeException {
+        AsyncConflictException() { super("already there"); }
+    }
+
+    private static ProblemDetail problem(Response response) { return (ProblemDetail) response.getEntity(); }
+
+    @Test void shouldMapWebException() {
+        WebException exception = WebException.notFound("no such thing");
+
+        Response response = ProblemResponses.toResponse(exception);
+
+        assertThat(response).isSameAs(exception.getResponse());
+    }
+
+    @Test void shouldUnwrapCompletionAndExecutionExceptions() {
+        WebException exception = WebException.notFound("no such thing");
+
+        Response response = ProblemResponses.toResponse(
+                new CompletionException(new ExecutionException(exception)));
+
+        assertThat(response).isSameAs(exception.getResponse());
+    }
+
+    @Test void shouldMapAnnotatedException() {
+        Response response = ProblemResponses.toResponse(new AsyncConflictException());
+
+        assertThat(response.getStatus()).isEqualTo(409);
+        assertThat(response.getMediaType()).isEqualTo(APPLICATION_PROBLEM_JSON_TYPE);
+        assertThat(problem(response).getTitle()).isEqualTo("async conflict");
+        assertThat(problem(response).getDetail()).isEqualTo("already there");
+    }
+
+    @Test void shouldMapOtherExceptionWithoutDisclosingIt() {
+        Response response = ProblemResponses.toResponse(new IllegalStateException("secret"));
+
+        assertThat(response.getStatus()).isEqualTo(500);
+        assertThat(problem(response).getType()).isNull();
+        assertThat(problem(response).getDetail()).isNull();
+        assertThat(problem(response).getInstance()).isNotNull();
+    }
+
+    @Test void shouldRespondWithValue() throws Exception {
+        Response response = ProblemResponses.respond(CompletableFuture.completedFuture("ok"))
+                .toCompletableFuture().get();
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getEntity()).isEqualTo("ok");
+    }
+
+    @Test void shouldRespondWithResponse() throws Exception {
+        Response accepted = Response.accepted().build();
+
+        Response response = ProblemResponses.respond(CompletableFuture.completedFuture(accepted))
+                .toCompletableFuture().get();
+
+        assertThat(response).isSameAs(accepted);
+    }
+
+    @Test void shouldRespondWithProblem() throws Exception {
+        CompletableFuture<String> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new AsyncConflictException());
+
+        Response response = ProblemResponses.respond(failed.thenApply(String::trim)).toCompletableFuture().get();
+
+        assertThat(response.getStatus()).isEqualTo(409);
+        assertThat(problem(response).getDetail()).isEqualTo("already there");
+    }
+
+    @Test void shouldReadProblemOnExecutor() throws Exception {
+        Response response = mock(Response.class);
+        given(response.getMediaType()).willReturn(APPLICATION_PROBLEM_JSON_TYPE);
+        given(response.readEntity(InputStream.class)).willReturn(new ByteArrayInputStream(
+                "{\"type\":\"urn:test:async\",\"status\":502}".getBytes(UTF_8)));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CompletableFuture<Response> pending = new CompletableFuture<>();
+            CompletionStage<ProblemDetail> problem = ProblemResponses.readProblem(pending, executor);
+            pending.complete(response);
+
+            assertThat(problem.toCompletableFuture().get(5, TimeUnit.SECONDS).getType())
+                    .isEqualTo(URI.create("urn:test:async"));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
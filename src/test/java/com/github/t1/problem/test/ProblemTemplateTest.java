@@ -0,0 +1,97 @@
+package com.github.t1.problem.test;
+
+import com.github.t1.problem.*;
+import org.junit.jupiter.api.Test;
+
+import javax.ws.rs.core.Response;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+
+import static com.github.t1.problem.ProblemDetail.APPLICATION_PROBLEM_JSON_TYPE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static javax.ws.rs.core.Response.Status.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProblemTemplateTest {
+    private static final ProblemTemplate RATE_LIMITED = ProblemTemplate.of(TOO_MANY_REQUESTS,
+            URI.create("urn:problem:rate-limited"), "rate limited");
+
+    private String json(ProblemDetail problem) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ProblemDetailJsonProvider()
+                .writeTo(problem, ProblemDetail.class, null, null, APPLICATION_PROBLEM_JSON_TYPE, null, out);
+        return new String(out.toByteArray(), UTF_8);
+    }
+
+    @Test void shouldCreateProblem() throws IOException {
+        ProblemDetail problem = RATE_LIMITED.problem("try again later", URI.create("urn:test:instance"));
+
+        assertThat(problem).isEqualTo(ProblemDetail.builder()
+                .type(URI.create("urn:problem:rate-limited"))
+                .title("rate limited")
+                .status(TOO_MANY_REQUESTS)
+                .detail("try again later")
+                .instance(URI.create("urn:test:instance"))
+                .build());
+        assertThat(json(problem)).isEqualTo("{"
+                + "\"type\":\"urn:problem:rate-limited\","
+                + "\"title\":\"rate limited\","
+                + "\"status\":429,"
+                + "\"detail\":\"try again later\","
+                + "\"instance\":\"urn:test:instance\""
+                + "}");
+    }
+
+    @Test void shouldCreateProblemWithoutTypeAndTitle() throws IOException {
+        ProblemDetail problem = ProblemTemplate.of(NOT_FOUND, null, null).problem(null, null);
+
+        assertThat(json(problem)).isEqualTo("{\"status\":404}");
+    }
+
+    @Test void shouldCreateProblemWithGeneratedInstance() {
+        ProblemDetail problem = RATE_LIMITED.problem("try again later");
+
+        assertThat(problem.getInstance().toString()).startsWith(ProblemDetail.URN_PROBLEM_INSTANCE_PREFIX);
+    }
+
+    @Test void shouldCreateResponse() {
+        Response response = RATE_LIMITED.response("try again later");
+
+        assertThat(response.getStatusInfo()).isEqualTo(TOO_MANY_REQUESTS);
+        assertThat(response.getMediaType()).isEqualTo(APPLICATION_PROBLEM_JSON_TYPE);
+        assertThat(((ProblemDetail) response.getEntity()).getDetail()).isEqualTo("try again later");
+    }
+
+    @Test void shouldCreateClientErrorException() {
+        WebException exception = RATE_LIMITED.exception("try again later", URI.create("urn:test:instance"));
+
+        assertThat(exception)
+                .isInstanceOf(WebApplicationApplicationException.class)
+                .hasMessage(""
+                        + "type: urn:problem:rate-limited\n"
+                        + "title: rate limited\n"
+                        + "status: 429\n"
+                        + "detail: try again later\n"
+                        + "instance: urn:test:instance\n");
+        assertThat(exception.getResponse().getStatusInfo()).isEqualTo(TOO_MANY_REQUESTS);
+    }
+
+    @ReturnStatus(SERVICE_UNAVAILABLE)
+    private static class MaintenanceException extends WebException {
+        private MaintenanceException(String message) {
+            super(message);
+        }
+    }
+
+    @Test void shouldCreateServerErrorExceptionFromType() {
+        ProblemTemplate template = ProblemTemplate.of(MaintenanceException.class);
+
+        WebException exception = template.exception("back soon");
+
+        assertThat(exception).isNotInstanceOf(WebApplicationApplicationException.class);
+        assertThat(template.isServerError()).isTrue();
+        assertThat(template.getTitle()).isEqualTo("maintenance");
+        assertThat(exception.getResponse().getStatusInfo()).isEqualTo(SERVICE_UNAVAILABLE);
+    }
+}
@@ -5,12 +5,22 @@ import org.assertj.core.api.Condition;
 import org.junit.jupiter.api.*;
 
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
 import javax.ws.rs.core.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.net.URI;
 
 import static com.github.t1.problem.ProblemDetail.APPLICATION_PROBLEM_JSON_TYPE;
 import static javax.ws.rs.core.Response.Status.*;
+import static javax.ws.rs.core.Response.Status.Family.*;
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
 
 @DisplayName("A WebException")
 class WebExceptionTest {
@@ -42,6 +52,12 @@ class WebExceptionTest {
                 .has(contentType(APPLICATION_PROBLEM_JSON_TYPE));
     }
 
+    @Test void shouldRenderMessageOnlyOnce() {
+        WebException exception = WebException.badRequest("foo");
+
+        assertThat(exception.getMessage()).isSameAs(exception.getMessage());
+    }
+
     @Test void shouldBuildFull() {
         WebException exception = WebException
                 .builderFor(CONFLICT)
@@ -63,6 +79,23 @@ class WebExceptionTest {
                 .has(contentType(APPLICATION_PROBLEM_JSON_TYPE));
     }
 
+    @Test void shouldBuildWithExtensions() {
+        WebException exception = WebException
+                .builderFor(FORBIDDEN)
+                .detail("out of credit")
+                .extension("balance", 30)
+                .extension("traceId", "abc")
+                .build();
+
+        assertThat(exception)
+                .hasMessage(""
+                        + "status: 403\n"
+                        + "detail: out of credit\n"
+                        + "instance: " + instanceUri(exception) + "\n"
+                        + "balance: 30\n"
+                        + "traceId: \"abc\"\n");
+    }
+
     @ReturnStatus(FORBIDDEN)
     private static class YouDidItWrongException extends WebApplicationApplicationException {
         private YouDidItWrongException(String message) {
@@ -84,4 +117,168 @@ class WebExceptionTest {
                         + "instance: " + instanceUri(exception) + "\n")
                 .has(status(FORBIDDEN));
     }
+
+    @ReturnStatus(NOT_ACCEPTABLE)
+    private static class YouDidItEvenWorseException extends YouDidItWrongException {
+        private YouDidItEvenWorseException() {
+            this("Don't do that again");
+        }
+
+        private YouDidItEvenWorseException(String message) {
+            super(message);
+        }
+    }
+
+    @Test void shouldSerializeSubException() throws Exception {
+        YouDidItWrongException exception = new YouDidItWrongException("serialize me");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(exception);
+        }
+        WebException copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (WebException) in.readObject();
+        }
+
+        assertThat(copy).isInstanceOf(YouDidItWrongException.class).has(status(FORBIDDEN));
+        ProblemDetail problem = (ProblemDetail) copy.getResponse().getEntity();
+        assertThat(problem.getType()).hasToString("urn:problem:java:" + YouDidItWrongException.class.getName());
+        assertThat(problem.getDetail()).isEqualTo("serialize me");
+        assertThat(copy.getStackTrace()).isEqualTo(exception.getStackTrace());
+    }
+
+    @Test void shouldBuildFromDeeperSubException() {
+        YouDidItEvenWorseException exception = new YouDidItEvenWorseException();
+
+        assertThat(exception)
+                .hasMessage(""
+                        + "type: urn:problem:java:" + YouDidItEvenWorseException.class.getName() + "\n"
+                        + "title: you did it even worse\n"
+                        + "status: 406\n"
+                        + "detail: Don't do that again\n"
+                        + "instance: " + instanceUri(exception) + "\n")
+                .has(status(NOT_ACCEPTABLE));
+    }
+
+    @Test void shouldBuildFromType() {
+        WebException exception = WebExceptionBuilder.from(YouDidItWrongException.class).detail("foo").build();
+
+        assertThat(exception)
+                .isInstanceOf(WebApplicationApplicationException.class)
+                .hasMessage(""
+                        + "type: urn:problem:java:" + YouDidItWrongException.class.getName() + "\n"
+                        + "title: you did it wrong\n"
+                        + "status: 403\n"
+                        + "detail: foo\n"
+                        + "instance: " + instanceUri(exception) + "\n")
+                .has(status(FORBIDDEN))
+                .has(contentType(APPLICATION_PROBLEM_JSON_TYPE));
+    }
+
+    @ReturnStatus(SERVICE_UNAVAILABLE)
+    private static class TryAgainLaterException extends WebException {
+        private TryAgainLaterException() {
+            super("later");
+        }
+    }
+
+    @Test void shouldCacheProblemType() {
+        ProblemType.preload(TryAgainLaterException.class);
+
+        ProblemType problemType = ProblemType.of(TryAgainLaterException.class);
+
+        assertThat(problemType).isSameAs(ProblemType.of(TryAgainLaterException.class));
+        assertThat(problemType.getStatus()).isEqualTo(SERVICE_UNAVAILABLE);
+        assertThat(problemType.getType()).hasToString("urn:problem:java:" + TryAgainLaterException.class.getName());
+        assertThat(problemType.getTitle()).isEqualTo("try again later");
+        assertThat(problemType.isServerError()).isTrue();
+    }
+
+    @Nested class StackTraces {
+        @AfterEach void resetStackless() { Stackless.disable(); }
+
+        @Test void shouldCaptureStackTraceByDefault() {
+            WebException exception = WebException.badRequest("foo");
+
+            assertThat(exception.getStackTrace()[0].getClassName()).isEqualTo(WebExceptionBuilder.class.getName());
+            assertThat(exception.getStackTrace()).extracting(StackTraceElement::getMethodName)
+                    .doesNotContain("fillInStackTrace", "<init>")
+                    .contains("shouldCaptureStackTraceByDefault");
+        }
+
+        @Test void shouldCaptureStackTraceOfSubException() {
+            YouDidItWrongException exception = new YouDidItWrongException("foo");
+
+            assertThat(exception.getStackTrace()[0].getMethodName()).isEqualTo("shouldCaptureStackTraceOfSubException");
+        }
+
+        @Test void shouldSkipStackTraceForConfiguredFamily() {
+            Stackless.enableFor(CLIENT_ERROR);
+
+            assertThat(WebException.badRequest("foo").getStackTrace()).isEmpty();
+            assertThat(WebException.badGateway("foo").getStackTrace()).isNotEmpty();
+        }
+
+        @Test void shouldSkipStackTraceForSubExceptionOfConfiguredFamily() {
+            Stackless.enableFor(CLIENT_ERROR);
+
+            assertThat(new YouDidItWrongException("foo").getStackTrace()).isEmpty();
+        }
+
+        @Test void shouldSkipStackTraceForStacklessSubException() {
+            StacklessException exception = new StacklessException("foo");
+
+            assertThat(exception.getStackTrace()).isEmpty();
+            assertThat(exception).has(status(NOT_FOUND));
+        }
+
+        @Test void shouldBuildShared() {
+            WebException exception = WebException.builderFor(TOO_MANY_REQUESTS).title("slow down").buildShared();
+
+            assertThat(exception)
+                    .isInstanceOf(WebApplicationApplicationException.class)
+                    .hasMessage(""
+                            + "title: slow down\n"
+                            + "status: 429\n")
+                    .has(status(TOO_MANY_REQUESTS));
+            assertThat(exception.getStackTrace()).isEmpty();
+            assertThat(instanceUri(exception)).isNull();
+        }
+
+        @Test void shouldNotChangeStackTraceOfShared() {
+            WebException exception = WebException.builderFor(TOO_MANY_REQUESTS).buildShared();
+
+            exception.setStackTrace(new RuntimeException().getStackTrace());
+
+            assertThat(exception.getStackTrace()).isEmpty();
+        }
+
+        @Test void shouldNotShareResponseHeadersOfShared() {
+            WebException exception = WebException.builderFor(TOO_MANY_REQUESTS).buildShared();
+            ContainerRequestContext request = mock(ContainerRequestContext.class);
+            given(request.getAcceptableMediaTypes()).willReturn(singletonList(MediaType.WILDCARD_TYPE));
+
+            for (int i = 0; i < 2; i++) {
+                Response response = exception.getResponse();
+                ContainerResponseContext context = mock(ContainerResponseContext.class);
+                given(context.getEntity()).willReturn(response.getEntity());
+                given(context.getMediaType()).willReturn(response.getMediaType());
+                given(context.getHeaders()).willReturn(response.getHeaders());
+
+                new ProblemNegotiationFilter().filter(request, context);
+
+                assertThat(response.getHeaders().get(HttpHeaders.VARY)).containsExactly(HttpHeaders.ACCEPT);
+            }
+            assertThat(exception.getResponse().getHeaders()).doesNotContainKey(HttpHeaders.VARY);
+            assertThat(exception.getResponse().getEntity()).isSameAs(exception.getResponse().getEntity());
+        }
+    }
+
+    @ReturnStatus(value = NOT_FOUND, stackless = true)
+    private static class StacklessException extends WebApplicationApplicationException {
+        private StacklessException(String message) {
+            super(message);
+        }
+    }
 }